@@ -0,0 +1,173 @@
+package net.enilink.commons.ds.graph;
+
+import java.util.Arrays;
+
+/**
+ * Compact adjacency list of one direction of a node.
+ * <p>
+ *
+ * The distinct neighbours are stored in insertion order in a plain array
+ * together with the labels of the edges to them. Parallel edges to the same
+ * neighbour share one slot whose label is a {@link Labels} array. Small lists
+ * are searched linearly, larger ones are indexed by an open addressing hash
+ * table over the slot positions.
+ */
+final class Adjacency {
+	static final int INDEX_THRESHOLD = 8;
+
+	private static final Object[] EMPTY = new Object[0];
+
+	/*
+	 * The labels of parallel edges to the same neighbour.
+	 */
+	static final class Labels {
+		Object[] labels;
+		int size;
+
+		Labels(Object first, Object second) {
+			labels = new Object[] { first, second, null, null };
+			size = 2;
+		}
+
+		boolean contains(Object label) {
+			for (int i = 0; i < size; i++) {
+				if (eq(labels[i], label)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		void add(Object label) {
+			if (size == labels.length) {
+				labels = Arrays.copyOf(labels, size * 2);
+			}
+			labels[size++] = label;
+		}
+	}
+
+	Object[] nodes = EMPTY;
+	Object[] labels = EMPTY;
+	// number of neighbours
+	int size;
+	// number of edges
+	int edges;
+	// slot positions + 1, 0 marks an empty entry
+	private int[] index;
+
+	/**
+	 * Returns the slot of the neighbour or <code>-1</code>.
+	 */
+	int indexOf(Object node) {
+		if (index == null) {
+			for (int i = 0; i < size; i++) {
+				if (eq(nodes[i], node)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+		int mask = index.length - 1;
+		int slot = hash(node) & mask;
+		int pos;
+		while ((pos = index[slot]) != 0) {
+			if (eq(nodes[pos - 1], node)) {
+				return pos - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	boolean contains(Object node, Object label) {
+		int i = indexOf(node);
+		if (i < 0) {
+			return false;
+		}
+		Object l = labels[i];
+		return l instanceof Labels ? ((Labels) l).contains(label) : eq(l,
+				label);
+	}
+
+	/**
+	 * Adds an edge and returns <code>true</code> if it was not contained.
+	 */
+	boolean add(Object node, Object label) {
+		int i = indexOf(node);
+		if (i >= 0) {
+			Object l = labels[i];
+			if (l instanceof Labels) {
+				Labels ls = (Labels) l;
+				if (ls.contains(label)) {
+					return false;
+				}
+				ls.add(label);
+			} else {
+				if (eq(l, label)) {
+					return false;
+				}
+				labels[i] = new Labels(l, label);
+			}
+			edges++;
+			return true;
+		}
+
+		if (size == nodes.length) {
+			int capacity = size == 0 ? 2 : size + (size >> 1) + 1;
+			nodes = Arrays.copyOf(nodes, capacity);
+			labels = Arrays.copyOf(labels, capacity);
+		}
+		nodes[size] = node;
+		labels[size] = label;
+		size++;
+		edges++;
+		if (index != null && 2 * size <= index.length) {
+			insert(index, size - 1);
+		} else if (size > INDEX_THRESHOLD) {
+			rehash();
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of labels in a slot.
+	 */
+	int labelCount(int i) {
+		Object l = labels[i];
+		return l instanceof Labels ? ((Labels) l).size : 1;
+	}
+
+	/**
+	 * Returns the <code>j</code>-th label of a slot.
+	 */
+	Object label(int i, int j) {
+		Object l = labels[i];
+		return l instanceof Labels ? ((Labels) l).labels[j] : l;
+	}
+
+	private void rehash() {
+		int capacity = Integer.highestOneBit(size * 4);
+		index = new int[capacity];
+		for (int i = 0; i < size; i++) {
+			insert(index, i);
+		}
+	}
+
+	private void insert(int[] index, int i) {
+		int mask = index.length - 1;
+		int slot = hash(nodes[i]) & mask;
+		while (index[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		index[slot] = i + 1;
+	}
+
+	private static int hash(Object o) {
+		int h = o == null ? 0 : o.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	static boolean eq(Object a, Object b) {
+		return a == b || (a != null && a.equals(b));
+	}
+}
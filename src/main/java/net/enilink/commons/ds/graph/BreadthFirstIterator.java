@@ -0,0 +1,97 @@
+package net.enilink.commons.ds.graph;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazy breadth-first iterator over the nodes of a graph.
+ * <p>
+ *
+ * The successors of a node are only fetched when the next node is requested
+ * after it, hence stopping the iteration early also stops the traversal.
+ * Besides the visited nodes, the memory is proportional to the frontier. The
+ * nodes must not be <code>null</code>.
+ */
+public class BreadthFirstIterator<N, E> implements Iterator<N> {
+	private final IGraph<N, E> graph;
+	private final int maxDepth;
+	private final NodeStates<N> visited;
+
+	private final ArrayDeque<N> queue = new ArrayDeque<N>();
+	// number of queued nodes at the current and the next depth
+	private int remaining, nextLevel;
+	private int depth;
+
+	// the last returned node whose successors are not yet queued
+	private N pending;
+
+	public BreadthFirstIterator(IGraph<N, E> graph, N start) {
+		this(graph, Collections.singleton(start), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates an iterator that visits the nodes reachable from the start nodes
+	 * whose distance is at most <code>maxDepth</code>.
+	 */
+	public BreadthFirstIterator(IGraph<N, E> graph,
+			Collection<? extends N> starts, int maxDepth) {
+		if (maxDepth < 0) {
+			throw new IllegalArgumentException("Invalid maximum depth: "
+					+ maxDepth);
+		}
+		this.graph = graph;
+		this.maxDepth = maxDepth;
+		this.visited = NodeStates.create(graph);
+		for (N start : starts) {
+			if (visited.get(start) == 0) {
+				visited.set(start, 1);
+				queue.add(start);
+			}
+		}
+		remaining = queue.size();
+	}
+
+	public boolean hasNext() {
+		if (pending != null) {
+			if (depth < maxDepth) {
+				for (N succ : graph.getSuccessors(pending)) {
+					if (visited.get(succ) == 0) {
+						visited.set(succ, 1);
+						queue.add(succ);
+						nextLevel++;
+					}
+				}
+			}
+			pending = null;
+		}
+		return !queue.isEmpty();
+	}
+
+	public N next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		if (remaining == 0) {
+			depth++;
+			remaining = nextLevel;
+			nextLevel = 0;
+		}
+		remaining--;
+		pending = queue.poll();
+		return pending;
+	}
+
+	/**
+	 * Returns the distance of the last returned node from the start nodes.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+}
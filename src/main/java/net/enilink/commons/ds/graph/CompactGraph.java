@@ -0,0 +1,284 @@
+package net.enilink.commons.ds.graph;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Memory efficient implementation of the {@link IGraph} interface.
+ * <p>
+ *
+ * In contrast to {@link HashGraph} each node only keeps one compact
+ * {@link Adjacency} per direction instead of separate sets for edges and
+ * neighbours, and edge objects are only created while iterating over the
+ * edge collections. Nodes and neighbours are iterated in insertion order,
+ * parallel edges between the same pair of nodes are grouped together.
+ */
+public class CompactGraph<N, E> implements IGraph<N, E> {
+	static final class Vertex {
+		final Adjacency out = new Adjacency();
+		final Adjacency in = new Adjacency();
+	}
+
+	protected Map<N, Vertex> nodeMap;
+
+	public CompactGraph() {
+		nodeMap = new LinkedHashMap<N, Vertex>();
+	}
+
+	public CompactGraph(IGraph<N, E> original) {
+		nodeMap = new LinkedHashMap<N, Vertex>(
+				(int) (original.getNodes().size() / .75f) + 1);
+		for (N node : original.getNodes()) {
+			addNode(node);
+			for (IEdge<N, E> edge : original.getOutEdges(node)) {
+				addNode(edge.getEnd());
+				addEdge(edge.getData(), node, edge.getEnd());
+			}
+		}
+	}
+
+	public boolean addNode(N n) {
+		if (nodeMap.containsKey(n))
+			return false;
+		nodeMap.put(n, new Vertex());
+		return true;
+	}
+
+	public boolean addEdge(E edge, N pred, N succ) {
+		Vertex node1 = nodeMap.get(pred), node2 = nodeMap.get(succ);
+
+		if (node1 == null || node2 == null)
+			return false;
+		if (node1.out.add(succ, edge)) {
+			node2.in.add(pred, edge);
+			return true;
+		}
+		return false;
+	}
+
+	public boolean containsEdge(E edge, N pred, N succ) {
+		Vertex node1 = nodeMap.get(pred);
+		return node1 != null && node1.out.contains(succ, edge);
+	}
+
+	public boolean containsNode(N node) {
+		return nodeMap.containsKey(node);
+	}
+
+	public Collection<N> getSuccessors(N node) {
+		Vertex node1 = nodeMap.get(node);
+		if (node1 != null) {
+			return new Neighbours(node1.out);
+		}
+		return Collections.emptyList();
+	}
+
+	public Collection<N> getPredecessors(N node) {
+		Vertex node1 = nodeMap.get(node);
+		if (node1 != null) {
+			return new Neighbours(node1.in);
+		}
+		return Collections.emptyList();
+	}
+
+	public Collection<? extends IEdge<N, E>> getOutEdges(N node) {
+		Vertex node1 = nodeMap.get(node);
+		if (node1 != null) {
+			return new Edges(node, node1.out, false);
+		}
+		return Collections.emptyList();
+	}
+
+	public Collection<? extends IEdge<N, E>> getInEdges(N node) {
+		Vertex node1 = nodeMap.get(node);
+		if (node1 != null) {
+			return new Edges(node, node1.in, true);
+		}
+		return Collections.emptyList();
+	}
+
+	public Collection<? extends IEdge<N, E>> getOutEdges(N node, E label) {
+		Vertex node1 = nodeMap.get(node);
+		if (node1 != null) {
+			return select(node, node1.out, label, false);
+		}
+		return Collections.emptyList();
+	}
+
+	public Collection<? extends IEdge<N, E>> getInEdges(N node, E label) {
+		Vertex node1 = nodeMap.get(node);
+		if (node1 != null) {
+			return select(node, node1.in, label, true);
+		}
+		return Collections.emptyList();
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<IEdge<N, E>> select(N node, Adjacency adjacency, E label,
+			boolean in) {
+		List<IEdge<N, E>> edges = new ArrayList<IEdge<N, E>>();
+		for (int i = 0; i < adjacency.size; i++) {
+			for (int j = 0, count = adjacency.labelCount(i); j < count; j++) {
+				if (Adjacency.eq(adjacency.label(i, j), label)) {
+					N other = (N) adjacency.nodes[i];
+					edges.add(in ? new Edge<N, E>(other, label, node)
+							: new Edge<N, E>(node, label, other));
+					break;
+				}
+			}
+		}
+		return edges;
+	}
+
+	public Collection<N> getNodes() {
+		return Collections.unmodifiableSet(nodeMap.keySet());
+	}
+
+	public int inDegree(N node) {
+		Vertex node1 = nodeMap.get(node);
+		return node1 == null ? 0 : node1.in.edges;
+	}
+
+	public int outDegree(N node) {
+		Vertex node1 = nodeMap.get(node);
+		return node1 == null ? 0 : node1.out.edges;
+	}
+
+	public Collection<N> getSources() {
+		return new DegreeFilter<N>(this, true);
+	}
+
+	public Collection<N> getSinks() {
+		return new DegreeFilter<N>(this, false);
+	}
+
+	/*
+	 * Live view of the neighbours within an adjacency list.
+	 */
+	private class Neighbours extends AbstractCollection<N> {
+		final Adjacency adjacency;
+
+		Neighbours(Adjacency adjacency) {
+			this.adjacency = adjacency;
+		}
+
+		@Override
+		public Iterator<N> iterator() {
+			return new Iterator<N>() {
+				int i = 0;
+
+				public boolean hasNext() {
+					return i < adjacency.size;
+				}
+
+				@SuppressWarnings("unchecked")
+				public N next() {
+					if (i >= adjacency.size) {
+						throw new NoSuchElementException();
+					}
+					return (N) adjacency.nodes[i++];
+				}
+
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return adjacency.indexOf(o) >= 0;
+		}
+
+		@Override
+		public int size() {
+			return adjacency.size;
+		}
+	}
+
+	/*
+	 * Live view of the edges within an adjacency list.
+	 */
+	private class Edges extends AbstractCollection<IEdge<N, E>> {
+		final N node;
+		final Adjacency adjacency;
+		final boolean in;
+
+		Edges(N node, Adjacency adjacency, boolean in) {
+			this.node = node;
+			this.adjacency = adjacency;
+			this.in = in;
+		}
+
+		@Override
+		public Iterator<IEdge<N, E>> iterator() {
+			return new Iterator<IEdge<N, E>>() {
+				int i = 0, j = 0;
+
+				public boolean hasNext() {
+					return i < adjacency.size;
+				}
+
+				@SuppressWarnings("unchecked")
+				public IEdge<N, E> next() {
+					if (i >= adjacency.size) {
+						throw new NoSuchElementException();
+					}
+					N other = (N) adjacency.nodes[i];
+					E label = (E) adjacency.label(i, j);
+					if (++j >= adjacency.labelCount(i)) {
+						i++;
+						j = 0;
+					}
+					return in ? new Edge<N, E>(other, label, node)
+							: new Edge<N, E>(node, label, other);
+				}
+
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public boolean contains(Object o) {
+			if (!(o instanceof IEdge)) {
+				return false;
+			}
+			IEdge<N, E> edge = (IEdge<N, E>) o;
+			if (in) {
+				return Adjacency.eq(edge.getEnd(), node)
+						&& adjacency.contains(edge.getStart(), edge.getData());
+			}
+			return Adjacency.eq(edge.getStart(), node)
+					&& adjacency.contains(edge.getEnd(), edge.getData());
+		}
+
+		@Override
+		public int size() {
+			return adjacency.edges;
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (N node : nodeMap.keySet()) {
+			for (IEdge<N, E> edge : getOutEdges(node)) {
+				if (sb.length() > 0) {
+					sb.append("\n");
+				}
+				sb.append(edge);
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,286 @@
+package net.enilink.commons.ds.graph;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe implementation of the {@link IGraph} interface.
+ * <p>
+ *
+ * Nodes and adjacency sets are backed by concurrent hash maps, hence readers
+ * never block and may traverse the graph while other threads add nodes and
+ * edges. Their iterators are weakly consistent and reflect some state of the
+ * graph at or since their creation. Iteration order is unspecified.
+ * <p>
+ *
+ * Adding an edge locks the stripes of both end nodes (in a fixed order) so
+ * that concurrent writers always update the out-edges of the predecessor and
+ * the in-edges of the successor together. Writers for disjoint parts of the
+ * graph do not contend. A reader may however observe one side of an edge
+ * shortly before the other.
+ * <p>
+ *
+ * Neither nodes nor labels may be <code>null</code>.
+ */
+public class ConcurrentGraph<N, E> implements IGraph<N, E> {
+	static final class Vertex<N, E> {
+		final Set<Edge<N, E>> outEdges = newSet();
+		final Set<Edge<N, E>> inEdges = newSet();
+		final Set<N> succs = newSet(), preds = newSet();
+
+		// Edges by label, created on the first query by label
+		volatile ConcurrentMap<E, Set<Edge<N, E>>> outByLabel, inByLabel;
+	}
+
+	protected ConcurrentMap<N, Vertex<N, E>> nodeMap;
+
+	private final Object[] locks;
+
+	public ConcurrentGraph() {
+		this(4 * Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a graph whose writers are partitioned into at least
+	 * <code>concurrencyLevel</code> lock stripes.
+	 */
+	public ConcurrentGraph(int concurrencyLevel) {
+		if (concurrencyLevel <= 0) {
+			throw new IllegalArgumentException("Invalid concurrency level: "
+					+ concurrencyLevel);
+		}
+		int stripes = Integer.highestOneBit(Math.min(concurrencyLevel,
+				1 << 16) * 2 - 1);
+		locks = new Object[stripes];
+		for (int i = 0; i < stripes; i++) {
+			locks[i] = new Object();
+		}
+		nodeMap = new ConcurrentHashMap<N, Vertex<N, E>>(16, .75f, stripes);
+	}
+
+	public ConcurrentGraph(IGraph<N, E> original) {
+		this();
+		for (N node : original.getNodes()) {
+			addNode(node);
+			for (IEdge<N, E> edge : original.getOutEdges(node)) {
+				addNode(edge.getEnd());
+				addEdge(edge.getData(), node, edge.getEnd());
+			}
+		}
+	}
+
+	static <T> Set<T> newSet() {
+		return Collections.newSetFromMap(new ConcurrentHashMap<T, Boolean>(4,
+				.75f, 1));
+	}
+
+	private int stripe(Object node) {
+		int h = node.hashCode();
+		h ^= (h >>> 16);
+		return h & (locks.length - 1);
+	}
+
+	public boolean addNode(N n) {
+		if (nodeMap.containsKey(n))
+			return false;
+		return nodeMap.putIfAbsent(n, new Vertex<N, E>()) == null;
+	}
+
+	public boolean addEdge(E edge, N pred, N succ) {
+		Vertex<N, E> node1 = nodeMap.get(pred), node2 = nodeMap.get(succ);
+
+		if (node1 == null || node2 == null)
+			return false;
+		if (edge == null)
+			throw new NullPointerException();
+
+		Edge<N, E> edgeTriple = new Edge<N, E>(pred, edge, succ);
+		if (node1.outEdges.contains(edgeTriple))
+			return false;
+
+		int stripe1 = stripe(pred), stripe2 = stripe(succ);
+		if (stripe1 == stripe2) {
+			synchronized (locks[stripe1]) {
+				return add(node1, edgeTriple, node2);
+			}
+		}
+		// acquire the locks in the order of the stripes to avoid deadlocks
+		synchronized (locks[Math.min(stripe1, stripe2)]) {
+			synchronized (locks[Math.max(stripe1, stripe2)]) {
+				return add(node1, edgeTriple, node2);
+			}
+		}
+	}
+
+	private boolean add(Vertex<N, E> node1, Edge<N, E> edgeTriple,
+			Vertex<N, E> node2) {
+		if (node1.outEdges.add(edgeTriple)) {
+			node1.succs.add(edgeTriple.end);
+			node2.preds.add(edgeTriple.start);
+			node2.inEdges.add(edgeTriple);
+			index(node1.outByLabel, edgeTriple);
+			index(node2.inByLabel, edgeTriple);
+			return true;
+		}
+		return false;
+	}
+
+	private void index(ConcurrentMap<E, Set<Edge<N, E>>> index,
+			Edge<N, E> edge) {
+		if (index != null) {
+			Set<Edge<N, E>> edges = index.get(edge.data);
+			if (edges == null) {
+				Set<Edge<N, E>> created = newSet();
+				edges = index.putIfAbsent(edge.data, created);
+				if (edges == null) {
+					edges = created;
+				}
+			}
+			edges.add(edge);
+		}
+	}
+
+	public boolean containsEdge(E edge, N pred, N succ) {
+		Vertex<N, E> node1 = nodeMap.get(pred);
+
+		return node1 != null
+				&& node1.outEdges.contains(new Edge<N, E>(pred, edge, succ));
+	}
+
+	public boolean containsNode(N node) {
+		return nodeMap.containsKey(node);
+	}
+
+	public Collection<N> getSuccessors(N node) {
+		Vertex<N, E> node1 = nodeMap.get(node);
+
+		if (node1 != null) {
+			return Collections.unmodifiableSet(node1.succs);
+		}
+		return Collections.emptyList();
+	}
+
+	public Collection<N> getPredecessors(N node) {
+		Vertex<N, E> node1 = nodeMap.get(node);
+
+		if (node1 != null) {
+			return Collections.unmodifiableSet(node1.preds);
+		}
+		return Collections.emptyList();
+	}
+
+	public Collection<? extends IEdge<N, E>> getOutEdges(N node) {
+		Vertex<N, E> node1 = nodeMap.get(node);
+
+		if (node1 != null) {
+			return Collections.unmodifiableSet(node1.outEdges);
+		}
+		return Collections.emptyList();
+	}
+
+	public Collection<? extends IEdge<N, E>> getInEdges(N node) {
+		Vertex<N, E> node1 = nodeMap.get(node);
+
+		if (node1 != null) {
+			return Collections.unmodifiableSet(node1.inEdges);
+		}
+		return Collections.emptyList();
+	}
+
+	public Collection<? extends IEdge<N, E>> getOutEdges(N node, E label) {
+		Vertex<N, E> node1 = nodeMap.get(node);
+
+		if (node1 != null) {
+			ConcurrentMap<E, Set<Edge<N, E>>> index = node1.outByLabel;
+			if (index == null) {
+				// the index is filled while holding the lock of the node, so
+				// that no concurrent writer can miss it
+				synchronized (locks[stripe(node)]) {
+					index = node1.outByLabel;
+					if (index == null) {
+						index = createIndex(node1.outEdges);
+						node1.outByLabel = index;
+					}
+				}
+			}
+			return lookup(index, label);
+		}
+		return Collections.emptyList();
+	}
+
+	public Collection<? extends IEdge<N, E>> getInEdges(N node, E label) {
+		Vertex<N, E> node1 = nodeMap.get(node);
+
+		if (node1 != null) {
+			ConcurrentMap<E, Set<Edge<N, E>>> index = node1.inByLabel;
+			if (index == null) {
+				synchronized (locks[stripe(node)]) {
+					index = node1.inByLabel;
+					if (index == null) {
+						index = createIndex(node1.inEdges);
+						node1.inByLabel = index;
+					}
+				}
+			}
+			return lookup(index, label);
+		}
+		return Collections.emptyList();
+	}
+
+	private ConcurrentMap<E, Set<Edge<N, E>>> createIndex(Set<Edge<N, E>> edges) {
+		ConcurrentMap<E, Set<Edge<N, E>>> index = new ConcurrentHashMap<E, Set<Edge<N, E>>>(
+				4, .75f, 1);
+		for (Edge<N, E> edge : edges) {
+			index(index, edge);
+		}
+		return index;
+	}
+
+	private Collection<? extends IEdge<N, E>> lookup(
+			ConcurrentMap<E, Set<Edge<N, E>>> index, E label) {
+		Set<Edge<N, E>> edges = label == null ? null : index.get(label);
+		if (edges == null) {
+			return Collections.emptySet();
+		}
+		return Collections.unmodifiableSet(edges);
+	}
+
+	public Collection<N> getNodes() {
+		return Collections.unmodifiableSet(nodeMap.keySet());
+	}
+
+	public int inDegree(N node) {
+		Vertex<N, E> node1 = nodeMap.get(node);
+		return node1 == null ? 0 : node1.inEdges.size();
+	}
+
+	public int outDegree(N node) {
+		Vertex<N, E> node1 = nodeMap.get(node);
+		return node1 == null ? 0 : node1.outEdges.size();
+	}
+
+	public Collection<N> getSources() {
+		return new DegreeFilter<N>(this, true);
+	}
+
+	public Collection<N> getSinks() {
+		return new DegreeFilter<N>(this, false);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (Vertex<N, E> node : nodeMap.values()) {
+			for (Edge<N, E> edge : node.outEdges) {
+				if (sb.length() > 0) {
+					sb.append("\n");
+				}
+				sb.append(edge);
+			}
+		}
+		return sb.toString();
+	}
+}
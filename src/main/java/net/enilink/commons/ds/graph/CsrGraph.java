@@ -0,0 +1,616 @@
+package net.enilink.commons.ds.graph;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable graph in compressed sparse row format.
+ * <p>
+ *
+ * The nodes are numbered densely from <code>0</code> to
+ * <code>getNodeCount() - 1</code>. The out-edges of node <code>v</code> are
+ * the positions <code>outOffsets[v]</code> to <code>outOffsets[v + 1] - 1</code>
+ * of the arrays <code>targets</code> and <code>labels</code>, sorted by the
+ * id of their target. The in-edges are stored the same way in a reverse index
+ * whose entries refer to the positions of the out-edges.
+ * <p>
+ *
+ * The graph implements the read-only part of {@link IGraph}, the collections
+ * that are returned are views on the arrays. Algorithms should use the int
+ * based accessors instead.
+ */
+public class CsrGraph<N, E> implements IIndexedGraph<N, E> {
+	private final Object[] nodes;
+	// open addressing index from node to id, -1 marks an empty slot
+	private final int[] index;
+
+	private final int[] outOffsets;
+	private final int[] targets;
+	private final Object[] labels;
+
+	private final int[] inOffsets;
+	private final int[] sources;
+	// position of the corresponding out-edge
+	private final int[] inEdges;
+
+	// created on demand
+	private volatile List<N> sourceNodes, sinkNodes;
+
+	/**
+	 * Creates a snapshot of <code>graph</code>. The node ids follow the
+	 * iteration order of {@link IGraph#getNodes()}.
+	 */
+	public CsrGraph(IGraph<N, E> graph) {
+		Collection<? extends N> nodeCollection = graph.getNodes();
+		this.nodes = nodeCollection.toArray();
+		this.index = createIndex(nodes);
+
+		int n = nodes.length;
+		outOffsets = new int[n + 1];
+		for (int v = 0; v < n; v++) {
+			@SuppressWarnings("unchecked")
+			N node = (N) nodes[v];
+			outOffsets[v + 1] = outOffsets[v] + graph.getOutEdges(node).size();
+		}
+		int m = outOffsets[n];
+		int[] src = new int[m];
+		int[] dst = new int[m];
+		Object[] lbl = new Object[m];
+		int e = 0;
+		for (int v = 0; v < n; v++) {
+			@SuppressWarnings("unchecked")
+			N node = (N) nodes[v];
+			for (IEdge<N, E> edge : graph.getOutEdges(node)) {
+				int target = find(index, nodes, edge.getEnd());
+				if (target < 0) {
+					throw new IllegalArgumentException(
+							"Edge target is not a node of the graph: " + edge);
+				}
+				src[e] = v;
+				dst[e] = target;
+				lbl[e] = edge.getData();
+				e++;
+			}
+		}
+		if (e != m) {
+			throw new IllegalArgumentException(
+					"Graph was modified while creating a snapshot");
+		}
+
+		int[][] csr = build(n, src, dst, lbl);
+		this.targets = csr[0];
+		this.labels = lbl;
+		this.inOffsets = csr[1];
+		this.sources = csr[2];
+		this.inEdges = csr[3];
+	}
+
+	private CsrGraph(Object[] nodes, int[] src, int[] dst, Object[] lbl) {
+		this.nodes = nodes;
+		this.index = createIndex(nodes);
+
+		int n = nodes.length;
+		outOffsets = new int[n + 1];
+		for (int i = 0; i < src.length; i++) {
+			outOffsets[src[i] + 1]++;
+		}
+		for (int v = 0; v < n; v++) {
+			outOffsets[v + 1] += outOffsets[v];
+		}
+
+		int[][] csr = build(n, src, dst, lbl);
+		this.targets = csr[0];
+		this.labels = lbl;
+		this.inOffsets = csr[1];
+		this.sources = csr[2];
+		this.inEdges = csr[3];
+	}
+
+	/**
+	 * Creates a graph from edges between node ids. Node <code>v</code> is
+	 * <code>nodes.get(v)</code> and edge <code>i</code> leads from
+	 * <code>sources[i]</code> to <code>targets[i]</code> with the label
+	 * <code>labels.get(i)</code> or <code>null</code> if <code>labels</code>
+	 * is <code>null</code>. Nodes as well as edges must be distinct.
+	 */
+	public static <N, E> CsrGraph<N, E> create(List<? extends N> nodes,
+			int[] sources, int[] targets, List<? extends E> labels) {
+		int n = nodes.size(), m = sources.length;
+		if (targets.length != m || (labels != null && labels.size() != m)) {
+			throw new IllegalArgumentException(
+					"Edge arrays differ in length");
+		}
+		for (int i = 0; i < m; i++) {
+			if (sources[i] < 0 || sources[i] >= n || targets[i] < 0
+					|| targets[i] >= n) {
+				throw new IllegalArgumentException("Invalid edge: "
+						+ sources[i] + " -> " + targets[i]);
+			}
+		}
+		Object[] lbl = labels == null ? new Object[m] : labels.toArray();
+		return new CsrGraph<N, E>(nodes.toArray(), sources, targets, lbl);
+	}
+
+	/*
+	 * Sorts the edges by (source, target) and builds the reverse index. The
+	 * edge arrays are reordered in place, returns {targets, inOffsets,
+	 * sources, inEdges}.
+	 */
+	private int[][] build(int n, int[] src, int[] dst, Object[] lbl) {
+		int m = src.length;
+		// sort the edges by target, then stable by source
+		int[] byTarget = countingSort(n, dst, null);
+		int[] order = countingSort(n, src, byTarget);
+
+		int[] targets = new int[m];
+		Object[] labels = lbl.clone();
+		for (int i = 0; i < m; i++) {
+			targets[i] = dst[order[i]];
+			lbl[i] = labels[order[i]];
+		}
+
+		int[] inOffsets = new int[n + 1];
+		for (int i = 0; i < m; i++) {
+			inOffsets[targets[i] + 1]++;
+		}
+		for (int v = 0; v < n; v++) {
+			inOffsets[v + 1] += inOffsets[v];
+		}
+		int[] sources = new int[m];
+		int[] inEdges = new int[m];
+		int[] pos = new int[n];
+		System.arraycopy(inOffsets, 0, pos, 0, n);
+		// edges are sorted by source, hence the in-edges are sorted as well
+		for (int v = 0; v < n; v++) {
+			for (int i = outOffsets[v]; i < outOffsets[v + 1]; i++) {
+				int p = pos[targets[i]]++;
+				sources[p] = v;
+				inEdges[p] = i;
+			}
+		}
+		return new int[][] { targets, inOffsets, sources, inEdges };
+	}
+
+	/*
+	 * Stable counting sort of the permutation order (or the identity if null)
+	 * by the given keys.
+	 */
+	private static int[] countingSort(int n, int[] keys, int[] order) {
+		int m = keys.length;
+		int[] count = new int[n + 1];
+		for (int i = 0; i < m; i++) {
+			count[keys[i] + 1]++;
+		}
+		for (int v = 0; v < n; v++) {
+			count[v + 1] += count[v];
+		}
+		int[] result = new int[m];
+		for (int i = 0; i < m; i++) {
+			int e = order == null ? i : order[i];
+			result[count[keys[e]]++] = e;
+		}
+		return result;
+	}
+
+	private static int[] createIndex(Object[] nodes) {
+		int capacity = Integer.highestOneBit(Math.max(nodes.length, 1) * 2);
+		if (capacity < nodes.length * 2) {
+			capacity <<= 1;
+		}
+		int[] index = new int[capacity];
+		for (int i = 0; i < index.length; i++) {
+			index[i] = -1;
+		}
+		int mask = capacity - 1;
+		for (int v = 0; v < nodes.length; v++) {
+			int slot = hash(nodes[v]) & mask;
+			while (index[slot] >= 0) {
+				slot = (slot + 1) & mask;
+			}
+			index[slot] = v;
+		}
+		return index;
+	}
+
+	private static int find(int[] index, Object[] nodes, Object node) {
+		int mask = index.length - 1;
+		int slot = hash(node) & mask;
+		int v;
+		while ((v = index[slot]) >= 0) {
+			Object other = nodes[v];
+			if (other == node || (node != null && node.equals(other))) {
+				return v;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private static int hash(Object node) {
+		int h = node == null ? 0 : node.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Returns the number of nodes.
+	 */
+	public int getNodeCount() {
+		return nodes.length;
+	}
+
+	/**
+	 * Returns the number of edges.
+	 */
+	public int getEdgeCount() {
+		return targets.length;
+	}
+
+	/**
+	 * Returns the id of a node or <code>-1</code> if it is not contained in
+	 * this graph.
+	 */
+	public int getId(N node) {
+		return find(index, nodes, node);
+	}
+
+	/**
+	 * Returns the node with the given id.
+	 */
+	@SuppressWarnings("unchecked")
+	public N getNode(int id) {
+		return (N) nodes[id];
+	}
+
+	/**
+	 * Returns the position of the first out-edge of node <code>v</code>.
+	 */
+	public int getOutStart(int v) {
+		return outOffsets[v];
+	}
+
+	/**
+	 * Returns the position after the last out-edge of node <code>v</code>.
+	 */
+	public int getOutEnd(int v) {
+		return outOffsets[v + 1];
+	}
+
+	/**
+	 * Returns the target id of the out-edge at position <code>e</code>.
+	 */
+	public int getTarget(int e) {
+		return targets[e];
+	}
+
+	/**
+	 * Returns the label of the out-edge at position <code>e</code>.
+	 */
+	@SuppressWarnings("unchecked")
+	public E getLabel(int e) {
+		return (E) labels[e];
+	}
+
+	/**
+	 * Returns the position of the first in-edge of node <code>v</code>.
+	 */
+	public int getInStart(int v) {
+		return inOffsets[v];
+	}
+
+	/**
+	 * Returns the position after the last in-edge of node <code>v</code>.
+	 */
+	public int getInEnd(int v) {
+		return inOffsets[v + 1];
+	}
+
+	/**
+	 * Returns the source id of the in-edge at position <code>i</code>.
+	 */
+	public int getSource(int i) {
+		return sources[i];
+	}
+
+	/**
+	 * Returns the position of the out-edge that corresponds to the in-edge at
+	 * position <code>i</code>.
+	 */
+	public int getInEdge(int i) {
+		return inEdges[i];
+	}
+
+	/**
+	 * Always throws {@link UnsupportedOperationException}.
+	 */
+	public boolean addNode(N n) {
+		throw new UnsupportedOperationException("Graph is read-only");
+	}
+
+	/**
+	 * Always throws {@link UnsupportedOperationException}.
+	 */
+	public boolean addEdge(E edge, N pred, N succ) {
+		throw new UnsupportedOperationException("Graph is read-only");
+	}
+
+	public boolean containsEdge(E edge, N pred, N succ) {
+		int v = getId(pred), w = getId(succ);
+		if (v < 0 || w < 0) {
+			return false;
+		}
+		// binary search for the first edge to w
+		int lo = outOffsets[v], hi = outOffsets[v + 1];
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (targets[mid] < w) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		for (int e = lo; e < outOffsets[v + 1] && targets[e] == w; e++) {
+			if (labels[e] == edge || (edge != null && edge.equals(labels[e]))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public boolean containsNode(N node) {
+		return getId(node) >= 0;
+	}
+
+	public Collection<N> getSuccessors(N node) {
+		int v = getId(node);
+		return v < 0 ? new NodeRange(targets, 0, 0) : new NodeRange(targets,
+				outOffsets[v], outOffsets[v + 1]);
+	}
+
+	public Collection<N> getPredecessors(N node) {
+		int v = getId(node);
+		return v < 0 ? new NodeRange(sources, 0, 0) : new NodeRange(sources,
+				inOffsets[v], inOffsets[v + 1]);
+	}
+
+	public Collection<? extends IEdge<N, E>> getOutEdges(N node) {
+		int v = getId(node);
+		return v < 0 ? new EdgeRange(false, v, 0, 0) : new EdgeRange(false, v,
+				outOffsets[v], outOffsets[v + 1]);
+	}
+
+	public Collection<? extends IEdge<N, E>> getInEdges(N node) {
+		int v = getId(node);
+		return v < 0 ? new EdgeRange(true, v, 0, 0) : new EdgeRange(true, v,
+				inOffsets[v], inOffsets[v + 1]);
+	}
+
+	public Collection<? extends IEdge<N, E>> getOutEdges(N node, E label) {
+		int v = getId(node);
+		if (v < 0) {
+			return Collections.emptyList();
+		}
+		List<IEdge<N, E>> edges = new ArrayList<IEdge<N, E>>();
+		for (int e = outOffsets[v]; e < outOffsets[v + 1]; e++) {
+			if (labels[e] == label || (label != null && label.equals(labels[e]))) {
+				edges.add(new Edge<N, E>(node, label, getNode(targets[e])));
+			}
+		}
+		return edges;
+	}
+
+	public Collection<? extends IEdge<N, E>> getInEdges(N node, E label) {
+		int v = getId(node);
+		if (v < 0) {
+			return Collections.emptyList();
+		}
+		List<IEdge<N, E>> edges = new ArrayList<IEdge<N, E>>();
+		for (int i = inOffsets[v]; i < inOffsets[v + 1]; i++) {
+			Object l = labels[inEdges[i]];
+			if (l == label || (label != null && label.equals(l))) {
+				edges.add(new Edge<N, E>(getNode(sources[i]), label, node));
+			}
+		}
+		return edges;
+	}
+
+	public int inDegree(N node) {
+		int v = getId(node);
+		return v < 0 ? 0 : inOffsets[v + 1] - inOffsets[v];
+	}
+
+	public int outDegree(N node) {
+		int v = getId(node);
+		return v < 0 ? 0 : outOffsets[v + 1] - outOffsets[v];
+	}
+
+	public Collection<N> getSources() {
+		if (sourceNodes == null) {
+			sourceNodes = select(inOffsets);
+		}
+		return sourceNodes;
+	}
+
+	public Collection<N> getSinks() {
+		if (sinkNodes == null) {
+			sinkNodes = select(outOffsets);
+		}
+		return sinkNodes;
+	}
+
+	/*
+	 * Returns the nodes with an empty range in the given offsets.
+	 */
+	private List<N> select(int[] offsets) {
+		List<N> selected = new ArrayList<N>();
+		for (int v = 0; v < nodes.length; v++) {
+			if (offsets[v] == offsets[v + 1]) {
+				selected.add(getNode(v));
+			}
+		}
+		return Collections.unmodifiableList(selected);
+	}
+
+	public Collection<N> getNodes() {
+		return new AbstractCollection<N>() {
+			@Override
+			public Iterator<N> iterator() {
+				return new Iterator<N>() {
+					int v = 0;
+
+					public boolean hasNext() {
+						return v < nodes.length;
+					}
+
+					public N next() {
+						if (v >= nodes.length) {
+							throw new NoSuchElementException();
+						}
+						return getNode(v++);
+					}
+
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public boolean contains(Object o) {
+				return getId((N) o) >= 0;
+			}
+
+			@Override
+			public int size() {
+				return nodes.length;
+			}
+		};
+	}
+
+	/*
+	 * The distinct nodes within a range of the targets or sources array. The
+	 * ranges are sorted, hence duplicates (parallel edges with different
+	 * labels) are adjacent.
+	 */
+	private class NodeRange extends AbstractCollection<N> {
+		final int[] ids;
+		final int start, end;
+
+		NodeRange(int[] ids, int start, int end) {
+			this.ids = ids;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public Iterator<N> iterator() {
+			return new Iterator<N>() {
+				int i = start;
+
+				public boolean hasNext() {
+					return i < end;
+				}
+
+				public N next() {
+					if (i >= end) {
+						throw new NoSuchElementException();
+					}
+					int id = ids[i++];
+					while (i < end && ids[i] == id) {
+						i++;
+					}
+					return getNode(id);
+				}
+
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			int size = 0;
+			for (int i = start; i < end; i++) {
+				if (i == start || ids[i] != ids[i - 1]) {
+					size++;
+				}
+			}
+			return size;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return start == end;
+		}
+	}
+
+	/*
+	 * The out-edges or in-edges of node v within a range of the respective
+	 * index. Edge objects are created on demand.
+	 */
+	private class EdgeRange extends AbstractCollection<IEdge<N, E>> {
+		final boolean in;
+		final int v, start, end;
+
+		EdgeRange(boolean in, int v, int start, int end) {
+			this.in = in;
+			this.v = v;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public Iterator<IEdge<N, E>> iterator() {
+			return new Iterator<IEdge<N, E>>() {
+				int i = start;
+
+				public boolean hasNext() {
+					return i < end;
+				}
+
+				public IEdge<N, E> next() {
+					if (i >= end) {
+						throw new NoSuchElementException();
+					}
+					int e = i++;
+					if (in) {
+						return new Edge<N, E>(getNode(sources[e]),
+								getLabel(inEdges[e]), getNode(v));
+					}
+					return new Edge<N, E>(getNode(v), getLabel(e),
+							getNode(targets[e]));
+				}
+
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return end - start;
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int v = 0; v < nodes.length; v++) {
+			for (int e = outOffsets[v]; e < outOffsets[v + 1]; e++) {
+				if (sb.length() > 0) {
+					sb.append("\n");
+				}
+				sb.append(new Edge<N, E>(getNode(v), getLabel(e),
+						getNode(targets[e])));
+			}
+		}
+		return sb.toString();
+	}
+}
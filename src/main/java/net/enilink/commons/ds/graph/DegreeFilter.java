@@ -0,0 +1,70 @@
+package net.enilink.commons.ds.graph;
+
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Live view of the sources or the sinks of a graph for implementations that
+ * do not maintain them. Iteration scans all nodes of the graph.
+ */
+final class DegreeFilter<N> extends AbstractCollection<N> {
+	final IGraph<N, ?> graph;
+	final boolean sources;
+
+	DegreeFilter(IGraph<N, ?> graph, boolean sources) {
+		this.graph = graph;
+		this.sources = sources;
+	}
+
+	boolean accept(N node) {
+		return (sources ? graph.inDegree(node) : graph.outDegree(node)) == 0;
+	}
+
+	@Override
+	public Iterator<N> iterator() {
+		final Iterator<? extends N> nodes = graph.getNodes().iterator();
+		return new Iterator<N>() {
+			N next;
+			boolean hasNext;
+
+			public boolean hasNext() {
+				while (!hasNext && nodes.hasNext()) {
+					N node = nodes.next();
+					if (accept(node)) {
+						next = node;
+						hasNext = true;
+					}
+				}
+				return hasNext;
+			}
+
+			public N next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				hasNext = false;
+				return next;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean contains(Object o) {
+		return graph.containsNode((N) o) && accept((N) o);
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		for (Iterator<N> it = iterator(); it.hasNext(); it.next()) {
+			size++;
+		}
+		return size;
+	}
+}
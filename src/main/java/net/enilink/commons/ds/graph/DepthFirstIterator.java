@@ -0,0 +1,143 @@
+package net.enilink.commons.ds.graph;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazy depth-first iterator over the nodes of a graph in preorder.
+ * <p>
+ *
+ * Successors are only fetched when the traversal descends into a node, hence
+ * stopping the iteration early also stops the traversal. Besides the visited
+ * nodes, the memory is proportional to the depth of the current path.
+ * <p>
+ *
+ * With a maximum depth the iteration returns every node whose distance from
+ * the start nodes is at most that depth. Once the maximum depth has cut off
+ * the traversal, a node that was first reached by a longer path is expanded
+ * again if a shorter path is found later. Otherwise each node is expanded
+ * only once.
+ */
+public class DepthFirstIterator<N, E> implements Iterator<N> {
+	private final IGraph<N, E> graph;
+	private final Iterator<? extends N> starts;
+	private final int maxDepth;
+	// depth + 1 of the shallowest visit, 0 if not yet visited
+	private final NodeStates<N> visited;
+	// set once a node was not expanded because of the maximum depth
+	private boolean truncated;
+
+	// the current path and the iterators over the successors of its nodes
+	private Object[] nodes = new Object[16];
+	private Object[] iterators = new Object[16];
+	private int size;
+
+	private N next;
+	private int nextDepth = -1, depth = -1;
+	private boolean hasNext;
+
+	public DepthFirstIterator(IGraph<N, E> graph, N start) {
+		this(graph, Collections.singleton(start), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates an iterator that visits the nodes reachable from the start nodes
+	 * whose distance is at most <code>maxDepth</code>.
+	 */
+	public DepthFirstIterator(IGraph<N, E> graph,
+			Collection<? extends N> starts, int maxDepth) {
+		if (maxDepth < 0) {
+			throw new IllegalArgumentException("Invalid maximum depth: "
+					+ maxDepth);
+		}
+		this.graph = graph;
+		this.starts = starts.iterator();
+		this.maxDepth = maxDepth;
+		this.visited = NodeStates.create(graph);
+	}
+
+	private void push(N node) {
+		if (size == nodes.length) {
+			nodes = Arrays.copyOf(nodes, size * 2);
+			iterators = Arrays.copyOf(iterators, size * 2);
+		}
+		nodes[size] = node;
+		iterators[size] = graph.getSuccessors(node).iterator();
+		size++;
+	}
+
+	/*
+	 * Visits a node at the given depth and returns true if it is new.
+	 */
+	private boolean visit(N node, int depth) {
+		int state = visited.get(node);
+		if (state == 0 || truncated && state - 1 > depth) {
+			visited.set(node, depth + 1);
+			if (depth < maxDepth) {
+				push(node);
+			} else {
+				truncated = true;
+			}
+			return state == 0;
+		}
+		return false;
+	}
+
+	public boolean hasNext() {
+		while (!hasNext) {
+			if (size == 0) {
+				if (!starts.hasNext()) {
+					return false;
+				}
+				N start = starts.next();
+				if (visit(start, 0)) {
+					next = start;
+					nextDepth = 0;
+					hasNext = true;
+				}
+				continue;
+			}
+			@SuppressWarnings("unchecked")
+			Iterator<? extends N> it = (Iterator<? extends N>) iterators[size - 1];
+			if (it.hasNext()) {
+				N succ = it.next();
+				int succDepth = size;
+				if (visit(succ, succDepth)) {
+					next = succ;
+					nextDepth = succDepth;
+					hasNext = true;
+				}
+			} else {
+				size--;
+				nodes[size] = iterators[size] = null;
+			}
+		}
+		return true;
+	}
+
+	public N next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		hasNext = false;
+		depth = nextDepth;
+		N node = next;
+		next = null;
+		return node;
+	}
+
+	/**
+	 * Returns the length of the path by which the last returned node was
+	 * reached.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+}
@@ -1,72 +1,101 @@
 package net.enilink.commons.ds.graph;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Iterator;
 
 /**
+ * Depth-first traversal that reports tree, back and other edges.
+ * <p>
+ * 
+ * The traversal uses an explicit stack, hence the depth of the graph is not
+ * limited by the call stack. The visited state is kept in an array for an
+ * {@link IIndexedGraph} and in a hash table otherwise. Subclasses customize
+ * the traversal by overriding the visit methods and
+ * {@link #getOutEdges(IGraph, Object)}.
  *
  * @author Ken Wenzel
  */
 public class DfsVisitor<T, E> implements IGraphVisitor<T, E> {
-    protected enum State { GRAY, BLACK };
+    protected static final int WHITE = 0, GRAY = 1, BLACK = 2;
     
     public void start(IGraph<T, E> graph) {
         dfs(graph);
     }
     
     protected void dfs(IGraph<T, E> graph) {
-        Map<T, State> visited = new LinkedHashMap<T, State>(); 
+        NodeStates<T> visited = NodeStates.create(graph);
         
         for (T root : getRoots(graph)) {
-            if (visited.get(root) == null) {
+            if (visited.get(root) == WHITE) {
                 startRoot(root);
-                dfsVisit(graph, null, null, root, visited);
+                dfsVisit(graph, root, visited);
                 finishRoot(root);
             }
         }
     }
     
     protected Collection<T> getRoots(IGraph<T, E> graph) {
-    	List<T> roots = new ArrayList<T>();
-		for (T node : graph.getNodes()) {
-			if (graph.getPredecessors(node).isEmpty()) {
-				roots.add(node);
-			}
-		}
-		return roots;
+    	return new ArrayList<T>(graph.getSources());
     }
     
-    protected boolean dfsVisit(IGraph<T, E> graph, T pred, IEdge<T, E> edge, T node, Map<T, State> visited) {
-        if (visited.get(node) == State.GRAY) {
-        	visitBack(edge.getStart(), edge.getData(), edge.getEnd());
-            return false;
-        } else if (visited.get(node) == State.BLACK) {
-            visitOther(edge.getStart(), edge.getData(), edge.getEnd());
-            return false;
-        }
-        
-        if (edge != null) {
-        	visitPre(edge.getStart(), edge.getData(), edge.getEnd());
-        } else {
-        	visitPre(null, null, node);
-        }
-
-        visited.put(node, State.GRAY);
+    /*
+     * Visits all nodes that are reachable from root and not visited yet.
+     */
+    void dfsVisit(IGraph<T, E> graph, T root, NodeStates<T> visited) {
+        // the stack of nodes, the edges that led to them and the iterators
+        // over their out-edges
+        Object[] nodes = new Object[16];
+        Object[] edges = new Object[16];
+        Object[] iterators = new Object[16];
         
-        for (IEdge<T, E> outEdge : getOutEdges(graph, node)) {            
-            dfsVisit(graph, node, outEdge, (outEdge.getEnd() != node) ? outEdge.getEnd() : outEdge.getStart(), visited);
-        }
+        visitPre(null, null, root);
+        visited.set(root, GRAY);
+        nodes[0] = root;
+        iterators[0] = getOutEdges(graph, root).iterator();
+        int size = 1;
         
-        if (edge != null) {
-        	visitPost(edge.getStart(), edge.getData(), edge.getEnd());
-        } else {
-        	visitPost(null, null, node);
+        while (size > 0) {
+            @SuppressWarnings("unchecked")
+            Iterator<? extends IEdge<T, E>> it = (Iterator<? extends IEdge<T, E>>) iterators[size - 1];
+            @SuppressWarnings("unchecked")
+            T node = (T) nodes[size - 1];
+            
+            if (it.hasNext()) {
+                IEdge<T, E> edge = it.next();
+                T next = (edge.getEnd() != node) ? edge.getEnd() : edge.getStart();
+                int state = visited.get(next);
+                if (state == GRAY) {
+                    visitBack(edge.getStart(), edge.getData(), edge.getEnd());
+                } else if (state == BLACK) {
+                    visitOther(edge.getStart(), edge.getData(), edge.getEnd());
+                } else {
+                    visitPre(edge.getStart(), edge.getData(), edge.getEnd());
+                    visited.set(next, GRAY);
+                    if (size == nodes.length) {
+                        nodes = Arrays.copyOf(nodes, size * 2);
+                        edges = Arrays.copyOf(edges, size * 2);
+                        iterators = Arrays.copyOf(iterators, size * 2);
+                    }
+                    nodes[size] = next;
+                    edges[size] = edge;
+                    iterators[size] = getOutEdges(graph, next).iterator();
+                    size++;
+                }
+            } else {
+                @SuppressWarnings("unchecked")
+                IEdge<T, E> edge = (IEdge<T, E>) edges[size - 1];
+                if (edge != null) {
+                	visitPost(edge.getStart(), edge.getData(), edge.getEnd());
+                } else {
+                	visitPost(null, null, node);
+                }
+                visited.set(node, BLACK);
+                
+                size--;
+                nodes[size] = edges[size] = iterators[size] = null;
+            }
         }
-        
-        visited.put(node, State.BLACK);
-        return true;
     }
     
     protected Collection<? extends IEdge<T, E>> getOutEdges(IGraph<T, E> graph, T node) {
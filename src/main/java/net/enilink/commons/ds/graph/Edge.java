@@ -1,6 +1,6 @@
 package net.enilink.commons.ds.graph;
 
-class Edge<N, E> implements IEdge<N, E> {
+public class Edge<N, E> implements IEdge<N, E> {
 	N start, end;
 	E data;
 
@@ -0,0 +1,71 @@
+package net.enilink.commons.ds.graph;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * The net changes of an {@link IObservableGraph} by a single operation or a
+ * batch of operations.
+ * <p>
+ *
+ * Elements that were added and removed again within the same batch are not
+ * reported.
+ */
+public class GraphEvent<N, E> {
+	private final IGraph<N, E> source;
+	private final Collection<N> addedNodes, removedNodes;
+	private final Collection<IEdge<N, E>> addedEdges, removedEdges;
+
+	public GraphEvent(IGraph<N, E> source, Collection<N> addedNodes,
+			Collection<N> removedNodes, Collection<IEdge<N, E>> addedEdges,
+			Collection<IEdge<N, E>> removedEdges) {
+		this.source = source;
+		this.addedNodes = unmodifiable(addedNodes);
+		this.removedNodes = unmodifiable(removedNodes);
+		this.addedEdges = unmodifiable(addedEdges);
+		this.removedEdges = unmodifiable(removedEdges);
+	}
+
+	private static <T> Collection<T> unmodifiable(Collection<T> elements) {
+		if (elements == null || elements.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableCollection(elements);
+	}
+
+	/**
+	 * Returns the changed graph.
+	 */
+	public IGraph<N, E> getSource() {
+		return source;
+	}
+
+	public Collection<N> getAddedNodes() {
+		return addedNodes;
+	}
+
+	public Collection<N> getRemovedNodes() {
+		return removedNodes;
+	}
+
+	public Collection<IEdge<N, E>> getAddedEdges() {
+		return addedEdges;
+	}
+
+	public Collection<IEdge<N, E>> getRemovedEdges() {
+		return removedEdges;
+	}
+
+	public boolean isEmpty() {
+		return addedNodes.isEmpty() && removedNodes.isEmpty()
+				&& addedEdges.isEmpty() && removedEdges.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder("GraphEvent(+").append(addedNodes)
+				.append(", -").append(removedNodes).append(", +")
+				.append(addedEdges).append(", -").append(removedEdges)
+				.append(")").toString();
+	}
+}
@@ -0,0 +1,181 @@
+package net.enilink.commons.ds.graph;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Manages the listeners and the pending changes of an
+ * {@link IObservableGraph}.
+ * <p>
+ *
+ * Changes are only recorded while at least one listener is registered.
+ * {@link NodeObserver}s are notified of each node change immediately, also
+ * within a batch, and do not cause changes to be recorded.
+ */
+final class GraphListenerSupport<N, E> {
+	/**
+	 * Receives node changes as soon as they happen.
+	 */
+	interface NodeObserver<N, E> {
+		void nodeAdded(IGraph<N, E> source, N node);
+
+		void nodeRemoved(IGraph<N, E> source, N node);
+	}
+
+	private static final Object[] NO_OBSERVERS = new Object[0];
+
+	private final IGraph<N, E> source;
+
+	@SuppressWarnings("unchecked")
+	private IGraphListener<N, E>[] listeners = (IGraphListener<N, E>[]) new IGraphListener<?, ?>[0];
+
+	private Object[] observers = NO_OBSERVERS;
+
+	private int depth;
+
+	// pending changes, null if there are none
+	private Set<N> addedNodes, removedNodes;
+	private Set<IEdge<N, E>> addedEdges, removedEdges;
+
+	GraphListenerSupport(IGraph<N, E> source) {
+		this.source = source;
+	}
+
+	void addListener(IGraphListener<N, E> listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Listener must not be null");
+		}
+		listeners = Arrays.copyOf(listeners, listeners.length + 1);
+		listeners[listeners.length - 1] = listener;
+	}
+
+	void removeListener(IGraphListener<N, E> listener) {
+		for (int i = listeners.length - 1; i >= 0; i--) {
+			if (listeners[i] == listener) {
+				@SuppressWarnings("unchecked")
+				IGraphListener<N, E>[] newListeners = (IGraphListener<N, E>[]) new IGraphListener<?, ?>[listeners.length - 1];
+				System.arraycopy(listeners, 0, newListeners, 0, i);
+				System.arraycopy(listeners, i + 1, newListeners, i,
+						newListeners.length - i);
+				listeners = newListeners;
+				return;
+			}
+		}
+	}
+
+	void addObserver(NodeObserver<N, E> observer) {
+		observers = Arrays.copyOf(observers, observers.length + 1);
+		observers[observers.length - 1] = observer;
+	}
+
+	void removeObserver(NodeObserver<N, E> observer) {
+		for (int i = observers.length - 1; i >= 0; i--) {
+			if (observers[i] == observer) {
+				Object[] newObservers = new Object[observers.length - 1];
+				System.arraycopy(observers, 0, newObservers, 0, i);
+				System.arraycopy(observers, i + 1, newObservers, i,
+						newObservers.length - i);
+				observers = newObservers;
+				return;
+			}
+		}
+	}
+
+	boolean isActive() {
+		return listeners.length > 0;
+	}
+
+	void begin() {
+		depth++;
+	}
+
+	void end() {
+		if (depth == 0) {
+			throw new IllegalStateException("No batch in progress");
+		}
+		if (--depth == 0) {
+			flush();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	void nodeAdded(N node) {
+		for (Object observer : observers) {
+			((NodeObserver<N, E>) observer).nodeAdded(source, node);
+		}
+		if (listeners.length > 0) {
+			if (removedNodes == null || !removedNodes.remove(node)) {
+				if (addedNodes == null) {
+					addedNodes = new LinkedHashSet<N>();
+				}
+				addedNodes.add(node);
+			}
+			if (depth == 0) {
+				flush();
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	void nodeRemoved(N node) {
+		for (Object observer : observers) {
+			((NodeObserver<N, E>) observer).nodeRemoved(source, node);
+		}
+		if (listeners.length > 0) {
+			if (addedNodes == null || !addedNodes.remove(node)) {
+				if (removedNodes == null) {
+					removedNodes = new LinkedHashSet<N>();
+				}
+				removedNodes.add(node);
+			}
+			if (depth == 0) {
+				flush();
+			}
+		}
+	}
+
+	void edgeAdded(IEdge<N, E> edge) {
+		if (listeners.length > 0) {
+			if (removedEdges == null || !removedEdges.remove(edge)) {
+				if (addedEdges == null) {
+					addedEdges = new LinkedHashSet<IEdge<N, E>>();
+				}
+				addedEdges.add(edge);
+			}
+			if (depth == 0) {
+				flush();
+			}
+		}
+	}
+
+	void edgeRemoved(IEdge<N, E> edge) {
+		if (listeners.length > 0) {
+			if (addedEdges == null || !addedEdges.remove(edge)) {
+				if (removedEdges == null) {
+					removedEdges = new LinkedHashSet<IEdge<N, E>>();
+				}
+				removedEdges.add(edge);
+			}
+			if (depth == 0) {
+				flush();
+			}
+		}
+	}
+
+	private void flush() {
+		if (addedNodes == null && removedNodes == null && addedEdges == null
+				&& removedEdges == null) {
+			return;
+		}
+		GraphEvent<N, E> event = new GraphEvent<N, E>(source, addedNodes,
+				removedNodes, addedEdges, removedEdges);
+		addedNodes = removedNodes = null;
+		addedEdges = removedEdges = null;
+		if (!event.isEmpty()) {
+			for (IGraphListener<N, E> listener : listeners) {
+				listener.graphChanged(event);
+			}
+		}
+	}
+}
@@ -1,7 +1,10 @@
 package net.enilink.commons.ds.graph;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -10,15 +13,32 @@ import java.util.Set;
  * @author Ken Wenzel
  */
 class GraphNode<T, E> {
-	protected Set<Edge<T, E>> inEdges = new LinkedHashSet<Edge<T, E>>();
-	protected Set<Edge<T, E>> outEdges = new LinkedHashSet<Edge<T, E>>();
+	protected Set<Edge<T, E>> inEdges;
+	protected Set<Edge<T, E>> outEdges;
 
-	protected Set<T> preds = new LinkedHashSet<T>(),
-			succs = new LinkedHashSet<T>();
+	protected Set<T> preds, succs;
 	protected T data;
 
+	// Edges by label, created on the first query by label
+	protected Map<E, Set<Edge<T, E>>> outByLabel, inByLabel;
+
 	protected GraphNode(T data) {
+		this(data, 0, 0);
+	}
+
+	/**
+	 * Creates a node whose sets are sized for the given degrees.
+	 */
+	protected GraphNode(T data, int outDegree, int inDegree) {
 		this.data = data;
+		this.outEdges = new LinkedHashSet<Edge<T, E>>(capacity(outDegree));
+		this.succs = new LinkedHashSet<T>(capacity(outDegree));
+		this.inEdges = new LinkedHashSet<Edge<T, E>>(capacity(inDegree));
+		this.preds = new LinkedHashSet<T>(capacity(inDegree));
+	}
+
+	static int capacity(int size) {
+		return Math.max((int) (size / .75f) + 1, 16);
 	}
 
 	boolean addOutEdge(E edge, GraphNode<T, E> succ) {
@@ -27,6 +47,8 @@ class GraphNode<T, E> {
 			succs.add(succ.data);
 			succ.preds.add(this.data);
 			succ.inEdges.add(edgeTriple);
+			index(outByLabel, edgeTriple);
+			index(succ.inByLabel, edgeTriple);
 			return true;
 		}
 		return false;
@@ -38,6 +60,8 @@ class GraphNode<T, E> {
 			preds.add(pred.data);
 			pred.succs.add(this.data);
 			pred.outEdges.add(edgeTriple);
+			index(inByLabel, edgeTriple);
+			index(pred.outByLabel, edgeTriple);
 			return true;
 		}
 		return false;
@@ -46,9 +70,13 @@ class GraphNode<T, E> {
 	boolean removeOutEdge(E edge, GraphNode<T, E> succ) {
 		IEdge<T, E> edgeTriple = new Edge<T, E>(data, edge, succ.data);
 		if (outEdges.remove(edgeTriple)) {
-			succs.remove(succ.data);
-			succ.preds.remove(this.data);
 			succ.inEdges.remove(edgeTriple);
+			unindex(outByLabel, edgeTriple);
+			unindex(succ.inByLabel, edgeTriple);
+			if (!hasEdgeTo(succ)) {
+				succs.remove(succ.data);
+				succ.preds.remove(this.data);
+			}
 			return true;
 		}
 		return false;
@@ -57,14 +85,93 @@ class GraphNode<T, E> {
 	boolean removeInEdge(GraphNode<T, E> pred, E edge) {
 		IEdge<T, E> edgeTriple = new Edge<T, E>(pred.data, edge, data);
 		if (inEdges.remove(edgeTriple)) {
-			preds.remove(pred.data);
-			pred.succs.remove(this.data);
 			pred.outEdges.remove(edgeTriple);
+			unindex(inByLabel, edgeTriple);
+			unindex(pred.outByLabel, edgeTriple);
+			if (!pred.hasEdgeTo(this)) {
+				preds.remove(pred.data);
+				pred.succs.remove(this.data);
+			}
 			return true;
 		}
 		return false;
 	}
 
+	/*
+	 * Checks if a parallel edge with another label connects this node to succ.
+	 */
+	private boolean hasEdgeTo(GraphNode<T, E> succ) {
+		if (outEdges.size() <= succ.inEdges.size()) {
+			for (Edge<T, E> e : outEdges) {
+				if (e.end == succ.data
+						|| (e.end != null && e.end.equals(succ.data))) {
+					return true;
+				}
+			}
+		} else {
+			for (Edge<T, E> e : succ.inEdges) {
+				if (e.start == data || (e.start != null && e.start.equals(data))) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	boolean containsOutEdge(E edge, T succ) {
+		return outEdges.contains(new Edge<T, E>(data, edge, succ));
+	}
+
+	Set<Edge<T, E>> getOutEdges(E label) {
+		if (outByLabel == null) {
+			outByLabel = createIndex(outEdges);
+		}
+		return lookup(outByLabel, label);
+	}
+
+	Set<Edge<T, E>> getInEdges(E label) {
+		if (inByLabel == null) {
+			inByLabel = createIndex(inEdges);
+		}
+		return lookup(inByLabel, label);
+	}
+
+	private Set<Edge<T, E>> lookup(Map<E, Set<Edge<T, E>>> index, E label) {
+		Set<Edge<T, E>> edges = index.get(label);
+		if (edges == null) {
+			return Collections.emptySet();
+		}
+		return Collections.unmodifiableSet(edges);
+	}
+
+	private Map<E, Set<Edge<T, E>>> createIndex(Set<? extends IEdge<T, E>> edges) {
+		Map<E, Set<Edge<T, E>>> index = new HashMap<E, Set<Edge<T, E>>>();
+		for (IEdge<T, E> edge : edges) {
+			index(index, (Edge<T, E>) edge);
+		}
+		return index;
+	}
+
+	private void index(Map<E, Set<Edge<T, E>>> index, Edge<T, E> edge) {
+		if (index != null) {
+			Set<Edge<T, E>> edges = index.get(edge.data);
+			if (edges == null) {
+				edges = new LinkedHashSet<Edge<T, E>>();
+				index.put(edge.data, edges);
+			}
+			edges.add(edge);
+		}
+	}
+
+	private void unindex(Map<E, Set<Edge<T, E>>> index, IEdge<T, E> edge) {
+		if (index != null) {
+			Set<Edge<T, E>> edges = index.get(edge.getData());
+			if (edges != null && edges.remove(edge) && edges.isEmpty()) {
+				index.remove(edge.getData());
+			}
+		}
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
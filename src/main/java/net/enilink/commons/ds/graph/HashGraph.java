@@ -4,26 +4,89 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Hashmap based implementation of the {@link IGraph} interface.
  * 
  */
-public class HashGraph<N, E> implements IGraph<N, E> {
+public class HashGraph<N, E> implements IObservableGraph<N, E> {
 	protected Map<N, GraphNode<N, E>> nodeMap;
 
+	// created on demand, changes are only recorded if listeners are present
+	private GraphListenerSupport<N, E> listeners;
+
+	// nodes without in-edges and without out-edges, created on demand
+	private Set<N> sources, sinks;
+
 	public HashGraph() {
 		nodeMap = new LinkedHashMap<N, GraphNode<N, E>>();
 	}
 
 	public HashGraph(IGraph<N, E> original) {
-		this();
-		for (N node : original.getNodes()) {
-			addNode(node);
+		Collection<? extends N> nodes = original.getNodes();
+		nodeMap = new LinkedHashMap<N, GraphNode<N, E>>(
+				GraphNode.capacity(nodes.size()));
+		// create all nodes with pre-sized adjacency sets first
+		for (N node : nodes) {
+			if (!nodeMap.containsKey(node)) {
+				nodeMap.put(node, new GraphNode<N, E>(node, original
+						.getOutEdges(node).size(), original.getInEdges(node)
+						.size()));
+			}
+		}
+		for (N node : nodes) {
+			GraphNode<N, E> node1 = nodeMap.get(node);
 			for (IEdge<N, E> edge : original.getOutEdges(node)) {
-				addNode(edge.getEnd());
-				addEdge(edge.getData(), node, edge.getEnd());
+				node1.addOutEdge(edge.getData(), getOrAddNode(edge.getEnd()));
+			}
+		}
+	}
+
+	/**
+	 * Creates a graph with capacity for the given number of nodes.
+	 */
+	public HashGraph(int expectedNodes) {
+		nodeMap = new LinkedHashMap<N, GraphNode<N, E>>(
+				GraphNode.capacity(expectedNodes));
+	}
+
+	private GraphNode<N, E> getOrAddNode(N n) {
+		GraphNode<N, E> node = nodeMap.get(n);
+		if (node == null) {
+			node = new GraphNode<N, E>(n);
+			nodeMap.put(n, node);
+			if (sources != null) {
+				sources.add(n);
+				sinks.add(n);
+			}
+			if (listeners != null) {
+				listeners.nodeAdded(n);
+			}
+		}
+		return node;
+	}
+
+	private void edgeAdded(GraphNode<N, E> pred, GraphNode<N, E> succ) {
+		if (sources != null) {
+			if (pred.outEdges.size() == 1) {
+				sinks.remove(pred.data);
+			}
+			if (succ.inEdges.size() == 1) {
+				sources.remove(succ.data);
+			}
+		}
+	}
+
+	private void edgeRemoved(GraphNode<N, E> pred, GraphNode<N, E> succ) {
+		if (sources != null) {
+			if (pred.outEdges.isEmpty()) {
+				sinks.add(pred.data);
+			}
+			if (succ.inEdges.isEmpty()) {
+				sources.add(succ.data);
 			}
 		}
 	}
@@ -37,6 +100,49 @@ public class HashGraph<N, E> implements IGraph<N, E> {
 		if (nodeMap.containsKey(n))
 			return false;
 		nodeMap.put(n, new GraphNode<N, E>(n));
+		if (sources != null) {
+			sources.add(n);
+			sinks.add(n);
+		}
+		if (listeners != null) {
+			listeners.nodeAdded(n);
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the node together with all of its edges.
+	 */
+	public boolean removeNode(N n) {
+		GraphNode<N, E> node = nodeMap.get(n);
+		if (node == null)
+			return false;
+
+		// report the node and its edges with one event
+		boolean batch = listeners != null && listeners.isActive();
+		if (batch) {
+			beginBatch();
+		}
+		try {
+			for (Edge<N, E> edge : new ArrayList<Edge<N, E>>(node.outEdges)) {
+				removeEdge(edge.data, edge.start, edge.end);
+			}
+			for (Edge<N, E> edge : new ArrayList<Edge<N, E>>(node.inEdges)) {
+				removeEdge(edge.data, edge.start, edge.end);
+			}
+			nodeMap.remove(n);
+			if (sources != null) {
+				sources.remove(n);
+				sinks.remove(n);
+			}
+			if (listeners != null) {
+				listeners.nodeRemoved(n);
+			}
+		} finally {
+			if (batch) {
+				endBatch();
+			}
+		}
 		return true;
 	}
 
@@ -50,7 +156,75 @@ public class HashGraph<N, E> implements IGraph<N, E> {
 
 		if (node1 == null || node2 == null)
 			return false;
-		return node1.addOutEdge(edge, node2);
+		if (node1.addOutEdge(edge, node2)) {
+			edgeAdded(node1, node2);
+			if (listeners != null && listeners.isActive()) {
+				listeners.edgeAdded(new Edge<N, E>(pred, edge, succ));
+			}
+			return true;
+		}
+		return false;
+	}
+
+	public boolean removeEdge(E edge, N pred, N succ) {
+		GraphNode<N, E> node1 = nodeMap.get(pred), node2 = nodeMap.get(succ);
+
+		if (node1 == null || node2 == null)
+			return false;
+		if (node1.removeOutEdge(edge, node2)) {
+			edgeRemoved(node1, node2);
+			if (listeners != null && listeners.isActive()) {
+				listeners.edgeRemoved(new Edge<N, E>(pred, edge, succ));
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Adds all edges and their end nodes to this graph.
+	 * <p>
+	 * 
+	 * Consecutive edges that share the same start node are added with a
+	 * single lookup of that node, hence inputs which are grouped by start
+	 * node are loaded fastest. Use {@link HashGraphBuilder} to load large
+	 * graphs in parallel.
+	 * 
+	 * @return <code>true</code> if the graph changed
+	 */
+	public boolean addEdges(Iterable<? extends IEdge<N, E>> edges) {
+		if (listeners != null && listeners.isActive()) {
+			// report all changes with one event
+			beginBatch();
+			try {
+				boolean changed = false;
+				for (IEdge<N, E> edge : edges) {
+					addNode(edge.getStart());
+					addNode(edge.getEnd());
+					changed |= addEdge(edge.getData(), edge.getStart(),
+							edge.getEnd());
+				}
+				return changed;
+			} finally {
+				endBatch();
+			}
+		}
+
+		boolean changed = false;
+		GraphNode<N, E> node1 = null;
+		for (IEdge<N, E> edge : edges) {
+			N pred = edge.getStart();
+			if (node1 == null || !(node1.data == pred || node1.data != null
+					&& node1.data.equals(pred))) {
+				node1 = getOrAddNode(pred);
+			}
+			GraphNode<N, E> node2 = getOrAddNode(edge.getEnd());
+			if (node1.addOutEdge(edge.getData(), node2)) {
+				edgeAdded(node1, node2);
+				changed = true;
+			}
+		}
+		return changed;
 	}
 
 	/*
@@ -61,14 +235,7 @@ public class HashGraph<N, E> implements IGraph<N, E> {
 	public boolean containsEdge(E edge, N pred, N succ) {
 		GraphNode<N, E> node1 = nodeMap.get(pred);
 
-		if (node1 != null) {
-			for (Edge<N, E> e : node1.outEdges) {
-				if (e.data == edge || (e.data != null && e.data.equals(edge))) {
-					return true;
-				}
-			}
-		}
-		return false;
+		return node1 != null && node1.containsOutEdge(edge, succ);
 	}
 
 	/*
@@ -116,6 +283,26 @@ public class HashGraph<N, E> implements IGraph<N, E> {
 		return Collections.emptyList();
 	}
 
+	public Collection<? extends IEdge<N, E>> getOutEdges(N node, E label) {
+		GraphNode<N, E> node1 = nodeMap.get(node);
+
+		if (node1 != null) {
+			return node1.getOutEdges(label);
+		}
+
+		return Collections.emptyList();
+	}
+
+	public Collection<? extends IEdge<N, E>> getInEdges(N node, E label) {
+		GraphNode<N, E> node1 = nodeMap.get(node);
+
+		if (node1 != null) {
+			return node1.getInEdges(label);
+		}
+
+		return Collections.emptyList();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -146,6 +333,87 @@ public class HashGraph<N, E> implements IGraph<N, E> {
 		return nodeMap.containsKey(node);
 	}
 
+	@Override
+	public int inDegree(N node) {
+		GraphNode<N, E> node1 = nodeMap.get(node);
+		return node1 == null ? 0 : node1.inEdges.size();
+	}
+
+	@Override
+	public int outDegree(N node) {
+		GraphNode<N, E> node1 = nodeMap.get(node);
+		return node1 == null ? 0 : node1.outEdges.size();
+	}
+
+	/**
+	 * Returns the nodes without in-edges. The set is built on the first call
+	 * and then maintained by all updates of this graph.
+	 */
+	@Override
+	public Collection<N> getSources() {
+		if (sources == null) {
+			indexDegrees();
+		}
+		return Collections.unmodifiableSet(sources);
+	}
+
+	/**
+	 * Returns the nodes without out-edges. The set is built on the first call
+	 * and then maintained by all updates of this graph.
+	 */
+	@Override
+	public Collection<N> getSinks() {
+		if (sinks == null) {
+			indexDegrees();
+		}
+		return Collections.unmodifiableSet(sinks);
+	}
+
+	private void indexDegrees() {
+		sources = new LinkedHashSet<N>();
+		sinks = new LinkedHashSet<N>();
+		for (GraphNode<N, E> node : nodeMap.values()) {
+			if (node.inEdges.isEmpty()) {
+				sources.add(node.data);
+			}
+			if (node.outEdges.isEmpty()) {
+				sinks.add(node.data);
+			}
+		}
+	}
+
+	GraphListenerSupport<N, E> getListenerSupport() {
+		if (listeners == null) {
+			listeners = new GraphListenerSupport<N, E>(this);
+		}
+		return listeners;
+	}
+
+	@Override
+	public void addGraphListener(IGraphListener<N, E> listener) {
+		getListenerSupport().addListener(listener);
+	}
+
+	@Override
+	public void removeGraphListener(IGraphListener<N, E> listener) {
+		if (listeners != null) {
+			listeners.removeListener(listener);
+		}
+	}
+
+	@Override
+	public void beginBatch() {
+		getListenerSupport().begin();
+	}
+
+	@Override
+	public void endBatch() {
+		if (listeners == null) {
+			throw new IllegalStateException("No batch in progress");
+		}
+		listeners.end();
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
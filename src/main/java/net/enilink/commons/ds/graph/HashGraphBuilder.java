@@ -0,0 +1,223 @@
+package net.enilink.commons.ds.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Bulk loader for a {@link HashGraph}.
+ * <p>
+ *
+ * Nodes and edges are first collected in plain arrays. {@link #build()} then
+ * counts the degrees of all nodes, creates the nodes with adjacency sets of
+ * their final size and fills the out-edges and afterwards the in-edges of
+ * disjoint node ranges in parallel. Both sides share the same edge objects.
+ * The resulting graph is the same as if the nodes and edges were added to an
+ * empty {@link HashGraph} in the order of this builder.
+ */
+public class HashGraphBuilder<N, E> {
+	private Map<N, Integer> ids = new HashMap<N, Integer>();
+	private List<N> nodes = new ArrayList<N>();
+
+	private int[] sources = new int[16], targets = new int[16];
+	private Object[] labels = new Object[16];
+	private int edgeCount;
+
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Sets the number of threads used by {@link #build()}, <code>1</code>
+	 * builds the graph within the calling thread.
+	 */
+	public HashGraphBuilder<N, E> setParallelism(int parallelism) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("Invalid parallelism: "
+					+ parallelism);
+		}
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	private int id(N node) {
+		Integer id = ids.get(node);
+		if (id == null) {
+			id = nodes.size();
+			ids.put(node, id);
+			nodes.add(node);
+		}
+		return id;
+	}
+
+	public HashGraphBuilder<N, E> addNode(N node) {
+		id(node);
+		return this;
+	}
+
+	/**
+	 * Adds an edge and, if not yet known, its end nodes. Duplicate edges are
+	 * dropped by {@link #build()}.
+	 */
+	public HashGraphBuilder<N, E> addEdge(E edge, N pred, N succ) {
+		int source = id(pred), target = id(succ);
+		if (edgeCount == sources.length) {
+			int capacity = edgeCount + (edgeCount >> 1);
+			sources = Arrays.copyOf(sources, capacity);
+			targets = Arrays.copyOf(targets, capacity);
+			labels = Arrays.copyOf(labels, capacity);
+		}
+		sources[edgeCount] = source;
+		targets[edgeCount] = target;
+		labels[edgeCount] = edge;
+		edgeCount++;
+		return this;
+	}
+
+	public HashGraphBuilder<N, E> addEdges(Iterable<? extends IEdge<N, E>> edges) {
+		for (IEdge<N, E> edge : edges) {
+			addEdge(edge.getData(), edge.getStart(), edge.getEnd());
+		}
+		return this;
+	}
+
+	/**
+	 * Creates the graph and resets this builder.
+	 */
+	public HashGraph<N, E> build() {
+		int n = nodes.size(), m = edgeCount;
+		int[] bySource = group(n, sources, m);
+		int[] byTarget = group(n, targets, m);
+
+		HashGraph<N, E> graph = new HashGraph<N, E>(n);
+		@SuppressWarnings("unchecked")
+		GraphNode<N, E>[] graphNodes = (GraphNode<N, E>[]) new GraphNode<?, ?>[n];
+		for (int v = 0; v < n; v++) {
+			N node = nodes.get(v);
+			graphNodes[v] = new GraphNode<N, E>(node, bySource[v + 1]
+					- bySource[v], byTarget[v + 1] - byTarget[v]);
+			graph.nodeMap.put(node, graphNodes[v]);
+		}
+
+		Fill fill = new Fill(graphNodes, bySource, byTarget, m);
+		if (parallelism > 1 && m > Fill.THRESHOLD) {
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				fill.out = true;
+				pool.invoke(fill.new Task(0, n));
+				fill.out = false;
+				pool.invoke(fill.new Task(0, n));
+			} finally {
+				pool.shutdown();
+			}
+		} else {
+			fill.out = true;
+			fill.fill(0, n);
+			fill.out = false;
+			fill.fill(0, n);
+		}
+
+		ids = new HashMap<N, Integer>();
+		nodes = new ArrayList<N>();
+		sources = new int[16];
+		targets = new int[16];
+		labels = new Object[16];
+		edgeCount = 0;
+		return graph;
+	}
+
+	/*
+	 * Stable counting sort of the edges by node. Returns the offsets of the
+	 * groups followed by the edge numbers.
+	 */
+	private static int[] group(int n, int[] keys, int m) {
+		int[] result = new int[n + 1 + m];
+		for (int i = 0; i < m; i++) {
+			result[keys[i] + 1]++;
+		}
+		for (int v = 0; v < n; v++) {
+			result[v + 1] += result[v];
+		}
+		int[] pos = Arrays.copyOf(result, n);
+		for (int i = 0; i < m; i++) {
+			result[n + 1 + pos[keys[i]]++] = i;
+		}
+		return result;
+	}
+
+	private class Fill {
+		static final int THRESHOLD = 1 << 14;
+
+		final GraphNode<N, E>[] graphNodes;
+		final int[] bySource, byTarget;
+		// the edge objects shared by both sides, null for duplicates
+		final Edge<?, ?>[] edges;
+		boolean out;
+
+		Fill(GraphNode<N, E>[] graphNodes, int[] bySource, int[] byTarget,
+				int m) {
+			this.graphNodes = graphNodes;
+			this.bySource = bySource;
+			this.byTarget = byTarget;
+			this.edges = new Edge<?, ?>[m];
+		}
+
+		@SuppressWarnings("unchecked")
+		void fill(int from, int to) {
+			int n = graphNodes.length;
+			for (int v = from; v < to; v++) {
+				GraphNode<N, E> node = graphNodes[v];
+				if (out) {
+					for (int k = bySource[v]; k < bySource[v + 1]; k++) {
+						int i = bySource[n + 1 + k];
+						Edge<N, E> edge = new Edge<N, E>(node.data,
+								(E) labels[i], graphNodes[targets[i]].data);
+						if (node.outEdges.add(edge)) {
+							node.succs.add(edge.end);
+							edges[i] = edge;
+						}
+					}
+				} else {
+					for (int k = byTarget[v]; k < byTarget[v + 1]; k++) {
+						Edge<N, E> edge = (Edge<N, E>) edges[byTarget[n + 1 + k]];
+						if (edge != null) {
+							node.inEdges.add(edge);
+							node.preds.add(edge.start);
+						}
+					}
+				}
+			}
+		}
+
+		int weight(int from, int to) {
+			int[] offsets = out ? bySource : byTarget;
+			return offsets[to] - offsets[from] + (to - from);
+		}
+
+		/*
+		 * Fills a range of nodes, each node is only modified by one task.
+		 */
+		class Task extends RecursiveAction {
+			private static final long serialVersionUID = 1L;
+
+			final int from, to;
+
+			Task(int from, int to) {
+				this.from = from;
+				this.to = to;
+			}
+
+			@Override
+			protected void compute() {
+				if (to - from > 1 && weight(from, to) > THRESHOLD) {
+					int mid = (from + to) >>> 1;
+					invokeAll(new Task(from, mid), new Task(mid, to));
+				} else {
+					fill(from, to);
+				}
+			}
+		}
+	}
+}
@@ -17,7 +17,37 @@ public interface IGraph<N, E> {
 
 	Collection<? extends IEdge<N, E>> getInEdges(N node);
 
+	/**
+	 * Returns the out-edges of <code>node</code> with the given label.
+	 */
+	Collection<? extends IEdge<N, E>> getOutEdges(N node, E label);
+
+	/**
+	 * Returns the in-edges of <code>node</code> with the given label.
+	 */
+	Collection<? extends IEdge<N, E>> getInEdges(N node, E label);
+
 	Collection<? extends N> getPredecessors(N node);
 
 	Collection<? extends N> getNodes();
+
+	/**
+	 * Returns the number of edges that end at <code>node</code>.
+	 */
+	int inDegree(N node);
+
+	/**
+	 * Returns the number of edges that start at <code>node</code>.
+	 */
+	int outDegree(N node);
+
+	/**
+	 * Returns the nodes without in-edges.
+	 */
+	Collection<? extends N> getSources();
+
+	/**
+	 * Returns the nodes without out-edges.
+	 */
+	Collection<? extends N> getSinks();
 }
\ No newline at end of file
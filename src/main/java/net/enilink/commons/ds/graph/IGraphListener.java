@@ -0,0 +1,12 @@
+package net.enilink.commons.ds.graph;
+
+/**
+ * Listener for changes of an {@link IObservableGraph}.
+ */
+public interface IGraphListener<N, E> {
+	/**
+	 * Called after nodes or edges were added or removed. Changes within a
+	 * batch are reported by one event when the outermost batch ends.
+	 */
+	void graphChanged(GraphEvent<N, E> event);
+}
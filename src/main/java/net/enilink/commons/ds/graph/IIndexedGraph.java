@@ -0,0 +1,24 @@
+package net.enilink.commons.ds.graph;
+
+/**
+ * A graph whose nodes are numbered densely from <code>0</code> to
+ * <code>getNodeCount() - 1</code>, which allows algorithms to keep their
+ * per-node state in plain arrays.
+ */
+public interface IIndexedGraph<N, E> extends IGraph<N, E> {
+	/**
+	 * Returns the number of nodes.
+	 */
+	int getNodeCount();
+
+	/**
+	 * Returns the id of a node or <code>-1</code> if it is not contained in
+	 * this graph.
+	 */
+	int getId(N node);
+
+	/**
+	 * Returns the node with the given id.
+	 */
+	N getNode(int id);
+}
@@ -0,0 +1,25 @@
+package net.enilink.commons.ds.graph;
+
+/**
+ * A graph that reports changes to registered {@link IGraphListener}s.
+ */
+public interface IObservableGraph<N, E> extends IGraph<N, E> {
+	void addGraphListener(IGraphListener<N, E> listener);
+
+	void removeGraphListener(IGraphListener<N, E> listener);
+
+	/**
+	 * Starts a batch of changes. Listeners are notified once with all changes
+	 * when the corresponding call of {@link #endBatch()} ends the outermost
+	 * batch. Batches may be nested.
+	 */
+	void beginBatch();
+
+	/**
+	 * Ends a batch of changes that was started by {@link #beginBatch()}.
+	 * 
+	 * @exception IllegalStateException
+	 *                if no batch was started
+	 */
+	void endBatch();
+}
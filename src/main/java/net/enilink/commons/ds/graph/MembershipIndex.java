@@ -0,0 +1,379 @@
+package net.enilink.commons.ds.graph;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import net.enilink.commons.ds.misc.BloomFilter;
+
+/**
+ * Maps nodes to the member graphs of a {@link UnionGraph} which contain them.
+ * <p>
+ *
+ * Only members whose nodes can not change behind the back of the index are
+ * indexed: {@link HashGraph}s, which report each added and removed node
+ * immediately, also within a batch, and the immutable {@link CsrGraph}s.
+ * Members up to a threshold number of nodes are indexed exactly by a map from
+ * each node to its member graph or, if the node is contained in several
+ * members, to an array of them. Larger members are represented by a
+ * {@link BloomFilter} whose hits are confirmed by
+ * {@link IGraph#containsNode(Object)}.
+ * <p>
+ *
+ * All other members are probed with {@link IGraph#containsNode(Object)} on
+ * each lookup.
+ * <p>
+ *
+ * Observed members only hold the index weakly, hence they do not keep an
+ * unused union graph alive.
+ */
+final class MembershipIndex<N, E> {
+	static final int DEFAULT_FILTER_THRESHOLD = 1 << 18;
+
+	static final double FALSE_POSITIVE_RATE = .01;
+
+	static final class Member<N, E> {
+		final IGraph<N, E> graph;
+		// reports its node changes to the index
+		final boolean observed;
+		// neither observed nor immutable, hence not indexed
+		final boolean scanned;
+		int position;
+		BloomFilter<N> filter;
+		// the number of insertions into the filter
+		int stamp;
+		int capacity;
+
+		Member(IGraph<N, E> graph) {
+			this.graph = graph;
+			this.observed = graph instanceof HashGraph;
+			this.scanned = !observed && !(graph instanceof CsrGraph);
+		}
+	}
+
+	private static final Object[] EMPTY = new Object[0];
+
+	// node -> member graph or array of member graphs in member order
+	private final Map<N, Object> index = new HashMap<N, Object>();
+
+	private final Map<IGraph<N, E>, Member<N, E>> members = new IdentityHashMap<IGraph<N, E>, Member<N, E>>();
+
+	// filtered and scanned members in member order
+	private Object[] probed = EMPTY;
+
+	private int filterThreshold = DEFAULT_FILTER_THRESHOLD;
+
+	/*
+	 * Forwards the node changes of observed members, unregisters itself
+	 * when the index was collected.
+	 */
+	static final class Observer<N, E> implements
+			GraphListenerSupport.NodeObserver<N, E> {
+		final WeakReference<MembershipIndex<N, E>> index;
+
+		Observer(MembershipIndex<N, E> index) {
+			this.index = new WeakReference<MembershipIndex<N, E>>(index);
+		}
+
+		@Override
+		public void nodeAdded(IGraph<N, E> source, N node) {
+			MembershipIndex<N, E> index = this.index.get();
+			if (index != null) {
+				index.nodeAdded(source, node);
+			} else {
+				((HashGraph<N, E>) source).getListenerSupport()
+						.removeObserver(this);
+			}
+		}
+
+		@Override
+		public void nodeRemoved(IGraph<N, E> source, N node) {
+			MembershipIndex<N, E> index = this.index.get();
+			if (index != null) {
+				index.nodeRemoved(source, node);
+			} else {
+				((HashGraph<N, E>) source).getListenerSupport()
+						.removeObserver(this);
+			}
+		}
+	}
+
+	private final Observer<N, E> observer = new Observer<N, E>(this);
+
+	int getFilterThreshold() {
+		return filterThreshold;
+	}
+
+	void setFilterThreshold(IGraph<N, E>[] graphs, int filterThreshold) {
+		clear();
+		this.filterThreshold = filterThreshold;
+		setGraphs(graphs);
+	}
+
+	/**
+	 * Removes all members and stops observing them.
+	 */
+	void clear() {
+		for (Member<N, E> member : members.values()) {
+			if (member.observed) {
+				((HashGraph<N, E>) member.graph).getListenerSupport()
+						.removeObserver(observer);
+			}
+		}
+		members.clear();
+		index.clear();
+		probed = EMPTY;
+	}
+
+	/**
+	 * Updates the index for the current members of the union graph.
+	 */
+	void setGraphs(IGraph<N, E>[] graphs) {
+		Map<IGraph<N, E>, Member<N, E>> removed = new IdentityHashMap<IGraph<N, E>, Member<N, E>>(
+				members);
+		List<Member<N, E>> byPosition = new ArrayList<Member<N, E>>(
+				graphs.length);
+		List<Member<N, E>> added = new ArrayList<Member<N, E>>();
+		for (int i = 0; i < graphs.length; i++) {
+			IGraph<N, E> graph = graphs[i];
+			Member<N, E> member = removed.remove(graph);
+			if (member == null) {
+				member = new Member<N, E>(graph);
+				members.put(graph, member);
+				added.add(member);
+			}
+			member.position = i;
+			byPosition.add(member);
+		}
+		for (Member<N, E> member : removed.values()) {
+			members.remove(member.graph);
+			if (member.observed) {
+				((HashGraph<N, E>) member.graph).getListenerSupport()
+						.removeObserver(observer);
+			}
+			if (!member.scanned && member.filter == null) {
+				unindex(member);
+			}
+		}
+		// positions are required for ordering the owners of a node
+		for (Member<N, E> member : added) {
+			if (member.observed) {
+				((HashGraph<N, E>) member.graph).getListenerSupport()
+						.addObserver(observer);
+			}
+			if (!member.scanned) {
+				index(member);
+			}
+		}
+		List<Member<N, E>> probed = new ArrayList<Member<N, E>>();
+		for (Member<N, E> member : byPosition) {
+			if (member.scanned || member.filter != null) {
+				probed.add(member);
+			}
+		}
+		this.probed = probed.toArray();
+	}
+
+	/**
+	 * Records a node that was added to an observed member.
+	 */
+	void nodeAdded(IGraph<N, E> graph, N node) {
+		Member<N, E> member = members.get(graph);
+		if (member == null) {
+			return;
+		}
+		if (member.filter != null) {
+			member.filter.add(node);
+			if (++member.stamp > member.capacity) {
+				index(member);
+			}
+		} else {
+			add(node, member);
+		}
+	}
+
+	/**
+	 * Records a node that was removed from an observed member.
+	 */
+	void nodeRemoved(IGraph<N, E> graph, N node) {
+		Member<N, E> member = members.get(graph);
+		// removed nodes remain in the filter and are sorted out by
+		// containsNode
+		if (member != null && member.filter == null) {
+			remove(node, member);
+		}
+	}
+
+	/**
+	 * Returns <code>null</code> if no member contains the node, the member
+	 * graph if exactly one member contains it and otherwise an array of all
+	 * containing members in member order.
+	 */
+	@SuppressWarnings("unchecked")
+	Object owners(N node) {
+		Object owners = index.get(node);
+		if (probed.length == 0) {
+			return owners;
+		}
+		// the first probed owner, further ones are only collected if there
+		// is more than one
+		IGraph<N, E> hit = null;
+		List<IGraph<N, E>> hits = null;
+		for (Object o : probed) {
+			Member<N, E> member = (Member<N, E>) o;
+			if ((member.filter == null || member.filter.mightContain(node))
+					&& member.graph.containsNode(node)) {
+				if (hit == null) {
+					hit = member.graph;
+				} else {
+					if (hits == null) {
+						hits = new ArrayList<IGraph<N, E>>(4);
+						hits.add(hit);
+					}
+					hits.add(member.graph);
+				}
+			}
+		}
+		if (hit == null) {
+			return owners;
+		} else if (hits == null && owners == null) {
+			return hit;
+		}
+		int probedCount = hits == null ? 1 : hits.size();
+		int indexedCount = owners instanceof Object[] ? ((Object[]) owners).length
+				: owners != null ? 1 : 0;
+		Object[] result = new IGraph<?, ?>[probedCount + indexedCount];
+		if (hits == null) {
+			result[0] = hit;
+		} else {
+			hits.toArray(result);
+		}
+		if (owners instanceof Object[]) {
+			System.arraycopy(owners, 0, result, probedCount, indexedCount);
+		} else if (owners != null) {
+			result[probedCount] = owners;
+		}
+		sort(result);
+		return result;
+	}
+
+	private void index(Member<N, E> member) {
+		Collection<? extends N> nodes = member.graph.getNodes();
+		int size = nodes.size();
+		if (size > filterThreshold || member.filter != null) {
+			if (member.filter == null) {
+				unindex(member);
+			}
+			member.capacity = Math.max(2 * size, filterThreshold);
+			member.filter = new BloomFilter<N>(member.capacity,
+					FALSE_POSITIVE_RATE);
+			for (N node : nodes) {
+				member.filter.add(node);
+			}
+			member.stamp = size;
+		} else {
+			for (N node : nodes) {
+				add(node, member);
+			}
+		}
+	}
+
+	private void unindex(Member<N, E> member) {
+		IGraph<N, E> graph = member.graph;
+		for (Iterator<Map.Entry<N, Object>> it = index.entrySet().iterator(); it
+				.hasNext();) {
+			Map.Entry<N, Object> entry = it.next();
+			Object owners = entry.getValue();
+			if (owners == graph) {
+				it.remove();
+			} else if (owners instanceof Object[]) {
+				Object remaining = without((Object[]) owners, graph);
+				if (remaining != owners) {
+					entry.setValue(remaining);
+				}
+			}
+		}
+	}
+
+	private void remove(N node, Member<N, E> member) {
+		IGraph<N, E> graph = member.graph;
+		Object owners = index.get(node);
+		if (owners == graph) {
+			index.remove(node);
+		} else if (owners instanceof Object[]) {
+			Object remaining = without((Object[]) owners, graph);
+			if (remaining != owners) {
+				index.put(node, remaining);
+			}
+		}
+	}
+
+	/*
+	 * Removes a graph from an array of owners, returns the array itself if
+	 * it does not contain the graph.
+	 */
+	private static Object without(Object[] owners, Object graph) {
+		int i = indexOf(owners, graph);
+		if (i < 0) {
+			return owners;
+		} else if (owners.length == 2) {
+			return owners[1 - i];
+		}
+		Object[] newArray = new IGraph<?, ?>[owners.length - 1];
+		System.arraycopy(owners, 0, newArray, 0, i);
+		System.arraycopy(owners, i + 1, newArray, i, newArray.length - i);
+		return newArray;
+	}
+
+	private void add(N node, Member<N, E> member) {
+		IGraph<N, E> graph = member.graph;
+		Object owners = index.get(node);
+		if (owners == null) {
+			index.put(node, graph);
+		} else if (owners instanceof Object[]) {
+			Object[] array = (Object[]) owners;
+			if (indexOf(array, graph) < 0) {
+				Object[] newArray = Arrays.copyOf(array, array.length + 1);
+				newArray[array.length] = graph;
+				sort(newArray);
+				index.put(node, newArray);
+			}
+		} else if (owners != graph) {
+			Object[] array = new IGraph<?, ?>[] { (IGraph<?, ?>) owners,
+					graph };
+			sort(array);
+			index.put(node, array);
+		}
+	}
+
+	private static int indexOf(Object[] array, Object o) {
+		for (int i = 0; i < array.length; i++) {
+			if (array[i] == o) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * Sorts a small array of member graphs by their position.
+	 */
+	private void sort(Object[] graphs) {
+		for (int i = 1; i < graphs.length; i++) {
+			Object graph = graphs[i];
+			int position = members.get(graph).position;
+			int j = i - 1;
+			while (j >= 0 && members.get(graphs[j]).position > position) {
+				graphs[j + 1] = graphs[j];
+				j--;
+			}
+			graphs[j + 1] = graph;
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package net.enilink.commons.ds.graph;
+
+/**
+ * Integer states of the nodes of a graph for traversal algorithms.
+ * <p>
+ *
+ * For an {@link IIndexedGraph} the states are kept in an array indexed by
+ * the node ids, otherwise in an open addressing hash table. All nodes
+ * initially have the state <code>0</code>.
+ */
+abstract class NodeStates<T> {
+	static <T> NodeStates<T> create(IGraph<T, ?> graph) {
+		if (graph instanceof IIndexedGraph) {
+			return new Dense<T>((IIndexedGraph<T, ?>) graph);
+		}
+		return new Hashed<T>();
+	}
+
+	abstract int get(T node);
+
+	abstract void set(T node, int state);
+
+	static final class Dense<T> extends NodeStates<T> {
+		final IIndexedGraph<T, ?> graph;
+		final int[] states;
+
+		Dense(IIndexedGraph<T, ?> graph) {
+			this.graph = graph;
+			this.states = new int[graph.getNodeCount()];
+		}
+
+		@Override
+		int get(T node) {
+			return states[graph.getId(node)];
+		}
+
+		@Override
+		void set(T node, int state) {
+			states[graph.getId(node)] = state;
+		}
+	}
+
+	static final class Hashed<T> extends NodeStates<T> {
+		Object[] keys = new Object[64];
+		int[] states = new int[64];
+		int size;
+		// null is a valid node
+		boolean hasNull;
+		int nullState;
+
+		private int slot(Object node) {
+			int h = node.hashCode() * 0x9E3779B9;
+			int mask = keys.length - 1;
+			int slot = (h ^ (h >>> 16)) & mask;
+			Object key;
+			while ((key = keys[slot]) != null && !key.equals(node)) {
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+
+		@Override
+		int get(T node) {
+			if (node == null) {
+				return hasNull ? nullState : 0;
+			}
+			int slot = slot(node);
+			return keys[slot] == null ? 0 : states[slot];
+		}
+
+		@Override
+		void set(T node, int state) {
+			if (node == null) {
+				hasNull = true;
+				nullState = state;
+				return;
+			}
+			int slot = slot(node);
+			if (keys[slot] == null) {
+				if (2 * (size + 1) > keys.length) {
+					grow();
+					slot = slot(node);
+				}
+				keys[slot] = node;
+				size++;
+			}
+			states[slot] = state;
+		}
+
+		private void grow() {
+			Object[] oldKeys = keys;
+			int[] oldStates = states;
+			keys = new Object[oldKeys.length * 2];
+			states = new int[oldKeys.length * 2];
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != null) {
+					int slot = slot(oldKeys[i]);
+					keys[slot] = oldKeys[i];
+					states[slot] = oldStates[i];
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package net.enilink.commons.ds.graph;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazy iterator over the nodes of a graph in topological order.
+ * <p>
+ *
+ * The iterator counts the predecessors of all nodes when it is created and
+ * then releases each node as soon as all of its predecessors were returned
+ * (Kahn's algorithm). Nodes on a cycle are never returned; whether the graph
+ * contained a cycle is known after the iteration ended. The nodes must not be
+ * <code>null</code>.
+ */
+public class TopologicalOrderIterator<N, E> implements Iterator<N> {
+	private final IGraph<N, E> graph;
+	// number of predecessors that were not yet returned + 1
+	private final NodeStates<N> inDegrees;
+	private final ArrayDeque<N> ready = new ArrayDeque<N>();
+	private int total, returned;
+
+	// the last returned node whose successors are not yet released
+	private N pending;
+
+	public TopologicalOrderIterator(IGraph<N, E> graph) {
+		this.graph = graph;
+		this.inDegrees = NodeStates.create(graph);
+		for (N node : graph.getNodes()) {
+			int inDegree = graph.getPredecessors(node).size();
+			if (inDegree == 0) {
+				ready.add(node);
+			}
+			inDegrees.set(node, inDegree + 1);
+			total++;
+		}
+	}
+
+	public boolean hasNext() {
+		if (pending != null) {
+			for (N succ : graph.getSuccessors(pending)) {
+				int inDegree = inDegrees.get(succ) - 1;
+				inDegrees.set(succ, inDegree);
+				if (inDegree == 1) {
+					ready.add(succ);
+				}
+			}
+			pending = null;
+		}
+		return !ready.isEmpty();
+	}
+
+	public N next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		pending = ready.poll();
+		returned++;
+		return pending;
+	}
+
+	/**
+	 * Returns <code>true</code> if the iteration ended before all nodes were
+	 * returned because the remaining nodes are on or behind a cycle.
+	 */
+	public boolean hasCycle() {
+		return !hasNext() && returned < total;
+	}
+
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+}
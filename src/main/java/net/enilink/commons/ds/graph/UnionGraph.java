@@ -1,27 +1,98 @@
 package net.enilink.commons.ds.graph;
 
+import java.util.AbstractCollection;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
-import java.util.Set;
+import java.util.List;
+import java.util.NoSuchElementException;
 
-public class UnionGraph<N, E> implements IUnionGraph<N, E> {
+/**
+ * Composition of several member graphs.
+ * <p>
+ *
+ * The union registers listeners on its observable members while it has
+ * {@link IGraphListener}s itself. Call {@link #dispose()} to release the
+ * members of a union that is no longer used, otherwise they keep the union
+ * reachable as long as its own listeners are registered.
+ */
+public class UnionGraph<N, E> implements IUnionGraph<N, E>,
+		IObservableGraph<N, E> {
 	protected Collection<IGraph<N, E>> subGraphs = new LinkedHashSet<IGraph<N, E>>();
 	protected IGraph<N, E> baseGraph;
 
+	// snapshot of the sub graphs for iterating without allocations
+	@SuppressWarnings("unchecked")
+	private IGraph<N, E>[] graphs = (IGraph<N, E>[]) new IGraph<?, ?>[0];
+
+	private final MembershipIndex<N, E> membership = new MembershipIndex<N, E>();
+
+	// created on demand, changes are only recorded if listeners are present
+	private GraphListenerSupport<N, E> listeners;
+
+	// forwards the changes of observable members, only registered on them
+	// while this union has listeners
+	private boolean observing;
+	private final IGraphListener<N, E> memberListener = new IGraphListener<N, E>() {
+		@Override
+		public void graphChanged(GraphEvent<N, E> event) {
+			memberChanged(event);
+		}
+	};
+
 	public UnionGraph() {
 	}
 	
 	public UnionGraph(Collection<IGraph<N, E>> graphs) {
-		for (IGraph<N, E> graph : graphs) {
-			subGraphs.add(graph);
-		}
+		subGraphs.addAll(graphs);
+		updateGraphs();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void updateGraphs() {
+		graphs = (IGraph<N, E>[]) subGraphs.toArray(new IGraph<?, ?>[subGraphs
+				.size()]);
+		membership.setGraphs(graphs);
 	}
 
 	@Override
 	public boolean addGraph(IGraph<N, E> graph) {
-		return subGraphs.add(graph);
+		if (subGraphs.contains(graph)) {
+			return false;
+		}
+		boolean notify = listeners != null && listeners.isActive();
+		if (notify) {
+			listeners.begin();
+		}
+		try {
+			if (notify) {
+				for (N node : graph.getNodes()) {
+					if (!containsNode(node)) {
+						listeners.nodeAdded(node);
+					}
+				}
+				for (N node : graph.getNodes()) {
+					for (IEdge<N, E> edge : graph.getOutEdges(node)) {
+						if (!containsEdge(edge.getData(), node, edge.getEnd())) {
+							listeners.edgeAdded(edge);
+						}
+					}
+				}
+			}
+			subGraphs.add(graph);
+			if (observing && graph instanceof IObservableGraph) {
+				((IObservableGraph<N, E>) graph)
+						.addGraphListener(memberListener);
+			}
+			updateGraphs();
+		} finally {
+			if (notify) {
+				listeners.end();
+			}
+		}
+		return true;
 	}
 
 	@Override
@@ -35,14 +106,49 @@ public class UnionGraph<N, E> implements IUnionGraph<N, E> {
 			baseGraph = null;
 		}
 
-		return subGraphs.remove(graph);
+		if (subGraphs.remove(graph)) {
+			if (observing && graph instanceof IObservableGraph) {
+				((IObservableGraph<N, E>) graph)
+						.removeGraphListener(memberListener);
+			}
+			updateGraphs();
+			if (listeners != null && listeners.isActive()) {
+				listeners.begin();
+				try {
+					for (N node : graph.getNodes()) {
+						for (IEdge<N, E> edge : graph.getOutEdges(node)) {
+							if (!containsEdge(edge.getData(), node,
+									edge.getEnd())) {
+								listeners.edgeRemoved(edge);
+							}
+						}
+					}
+					for (N node : graph.getNodes()) {
+						if (!containsNode(node)) {
+							listeners.nodeRemoved(node);
+						}
+					}
+				} finally {
+					listeners.end();
+				}
+			}
+			return true;
+		}
+		return false;
 	}
 
 	@Override
 	public boolean addEdge(E edge, N pred, N succ) {
 		IGraph<N, E> baseGraph = getBaseGraph();
 		if (baseGraph != null) {
-			return baseGraph.addEdge(edge, pred, succ);
+			if (baseGraph.addEdge(edge, pred, succ)) {
+				if (!(baseGraph instanceof IObservableGraph)
+						&& listeners != null && listeners.isActive()
+						&& !inOtherMember(baseGraph, edge, pred, succ)) {
+					listeners.edgeAdded(new Edge<N, E>(pred, edge, succ));
+				}
+				return true;
+			}
 		}
 		return false;
 	}
@@ -51,61 +157,302 @@ public class UnionGraph<N, E> implements IUnionGraph<N, E> {
 	public boolean addNode(N n) {
 		IGraph<N, E> baseGraph = getBaseGraph();
 		if (baseGraph != null) {
-			return baseGraph.addNode(n);
+			if (baseGraph.addNode(n)) {
+				if (!(baseGraph instanceof IObservableGraph)
+						&& listeners != null && listeners.isActive()
+						&& !inOtherMember(baseGraph, n)) {
+					listeners.nodeAdded(n);
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Checks if a member other than the given one contains the node.
+	 */
+	private boolean inOtherMember(IGraph<N, E> member, N node) {
+		Object owners = membership.owners(node);
+		if (owners instanceof Object[]) {
+			return true;
+		}
+		return owners != null && owners != member;
+	}
+
+	/*
+	 * Checks if a member other than the given one contains the edge.
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean inOtherMember(IGraph<N, E> member, E edge, N pred, N succ) {
+		Object owners = membership.owners(pred);
+		if (owners instanceof IGraph) {
+			return owners != member
+					&& ((IGraph<N, E>) owners).containsEdge(edge, pred, succ);
+		} else if (owners != null) {
+			for (IGraph<N, E> owner : (IGraph<N, E>[]) owners) {
+				if (owner != member && owner.containsEdge(edge, pred, succ)) {
+					return true;
+				}
+			}
 		}
 		return false;
 	}
 
+	/*
+	 * Reports the changes of a member that are visible in this union.
+	 */
+	private void memberChanged(GraphEvent<N, E> event) {
+		IGraph<N, E> member = event.getSource();
+		if (listeners == null || !listeners.isActive()) {
+			return;
+		}
+		listeners.begin();
+		try {
+			for (IEdge<N, E> edge : event.getRemovedEdges()) {
+				if (!containsEdge(edge.getData(), edge.getStart(),
+						edge.getEnd())) {
+					listeners.edgeRemoved(edge);
+				}
+			}
+			for (N node : event.getRemovedNodes()) {
+				if (!containsNode(node)) {
+					listeners.nodeRemoved(node);
+				}
+			}
+			for (N node : event.getAddedNodes()) {
+				if (!inOtherMember(member, node)) {
+					listeners.nodeAdded(node);
+				}
+			}
+			for (IEdge<N, E> edge : event.getAddedEdges()) {
+				if (!inOtherMember(member, edge.getData(), edge.getStart(),
+						edge.getEnd())) {
+					listeners.edgeAdded(edge);
+				}
+			}
+		} finally {
+			listeners.end();
+		}
+	}
+
+	@Override
+	public void addGraphListener(IGraphListener<N, E> listener) {
+		if (listeners == null) {
+			listeners = new GraphListenerSupport<N, E>(this);
+		}
+		listeners.addListener(listener);
+		observeMembers(true);
+	}
+
+	@Override
+	public void removeGraphListener(IGraphListener<N, E> listener) {
+		if (listeners != null) {
+			listeners.removeListener(listener);
+			observeMembers(listeners.isActive());
+		}
+	}
+
+	/*
+	 * Registers or unregisters the listener on all observable members.
+	 */
+	private void observeMembers(boolean observe) {
+		if (observing == observe) {
+			return;
+		}
+		observing = observe;
+		for (IGraph<N, E> graph : graphs) {
+			if (graph instanceof IObservableGraph) {
+				if (observe) {
+					((IObservableGraph<N, E>) graph)
+							.addGraphListener(memberListener);
+				} else {
+					((IObservableGraph<N, E>) graph)
+							.removeGraphListener(memberListener);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes all member graphs without reporting any changes and releases
+	 * the listeners that this union has registered on them.
+	 */
+	public void dispose() {
+		observeMembers(false);
+		membership.clear();
+		subGraphs.clear();
+		baseGraph = null;
+		updateGraphs();
+	}
+
+	@Override
+	public void beginBatch() {
+		if (listeners == null) {
+			listeners = new GraphListenerSupport<N, E>(this);
+		}
+		listeners.begin();
+	}
+
+	@Override
+	public void endBatch() {
+		if (listeners == null) {
+			throw new IllegalStateException("No batch in progress");
+		}
+		listeners.end();
+	}
+
+	/**
+	 * Sets the number of nodes above which a member graph is represented by a
+	 * bloom filter instead of an exact node index.
+	 */
+	public void setFilterThreshold(int filterThreshold) {
+		membership.setFilterThreshold(graphs, filterThreshold);
+	}
+
+	public int getFilterThreshold() {
+		return membership.getFilterThreshold();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Collection<? extends IEdge<N, E>> getInEdges(final N node) {
+		Object owners = membership.owners(node);
+		if (owners == null) {
+			return Collections.emptyList();
+		} else if (owners instanceof IGraph) {
+			return Collections.unmodifiableCollection(((IGraph<N, E>) owners)
+					.getInEdges(node));
+		}
+		return new EdgeView((IGraph<N, E>[]) owners, node, false, false, null) {
+			@Override
+			Collection<? extends IEdge<N, E>> get(IGraph<N, E> graph) {
+				return graph.getInEdges(node);
+			}
+		};
+	}
+
 	@Override
-	public Collection<? extends IEdge<N, E>> getInEdges(N node) {
-		Set<IEdge<N, E>> inEdges = new LinkedHashSet<IEdge<N, E>>();
-		for (IGraph<N, E> subGraph : subGraphs) {
-			inEdges.addAll(subGraph.getInEdges(node));
+	@SuppressWarnings("unchecked")
+	public Collection<? extends IEdge<N, E>> getInEdges(final N node,
+			final E label) {
+		Object owners = membership.owners(node);
+		if (owners == null) {
+			return Collections.emptyList();
+		} else if (owners instanceof IGraph) {
+			return Collections.unmodifiableCollection(((IGraph<N, E>) owners)
+					.getInEdges(node, label));
 		}
-		return inEdges;
+		return new EdgeView((IGraph<N, E>[]) owners, node, false, true, label) {
+			@Override
+			Collection<? extends IEdge<N, E>> get(IGraph<N, E> graph) {
+				return graph.getInEdges(node, label);
+			}
+		};
 	}
 
 	@Override
 	public Collection<? extends N> getNodes() {
-		Set<N> nodes = new HashSet<N>();
-		for (IGraph<N, E> subGraph : subGraphs) {
-			nodes.addAll(subGraph.getNodes());
+		if (graphs.length == 1) {
+			return Collections.unmodifiableCollection(graphs[0].getNodes());
+		}
+		return new UnionView<N>(graphs) {
+			@Override
+			Collection<? extends N> get(IGraph<N, E> graph) {
+				return graph.getNodes();
+			}
+
+			@Override
+			boolean contains(IGraph<N, E> graph, N element) {
+				return graph.containsNode(element);
+			}
+		};
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Collection<? extends IEdge<N, E>> getOutEdges(final N node) {
+		Object owners = membership.owners(node);
+		if (owners == null) {
+			return Collections.emptyList();
+		} else if (owners instanceof IGraph) {
+			return Collections.unmodifiableCollection(((IGraph<N, E>) owners)
+					.getOutEdges(node));
 		}
-		return nodes;
+		return new EdgeView((IGraph<N, E>[]) owners, node, true, false, null) {
+			@Override
+			Collection<? extends IEdge<N, E>> get(IGraph<N, E> graph) {
+				return graph.getOutEdges(node);
+			}
+		};
 	}
 
 	@Override
-	public Collection<? extends IEdge<N, E>> getOutEdges(N node) {
-		Set<IEdge<N, E>> outEdges = new LinkedHashSet<IEdge<N, E>>();
-		for (IGraph<N, E> subGraph : subGraphs) {
-			outEdges.addAll(subGraph.getOutEdges(node));
+	@SuppressWarnings("unchecked")
+	public Collection<? extends IEdge<N, E>> getOutEdges(final N node,
+			final E label) {
+		Object owners = membership.owners(node);
+		if (owners == null) {
+			return Collections.emptyList();
+		} else if (owners instanceof IGraph) {
+			return Collections.unmodifiableCollection(((IGraph<N, E>) owners)
+					.getOutEdges(node, label));
 		}
-		return outEdges;
+		return new EdgeView((IGraph<N, E>[]) owners, node, true, true, label) {
+			@Override
+			Collection<? extends IEdge<N, E>> get(IGraph<N, E> graph) {
+				return graph.getOutEdges(node, label);
+			}
+		};
 	}
 
 	@Override
-	public Collection<? extends N> getPredecessors(N node) {
-		Set<N> preds = new HashSet<N>();
-		for (IGraph<N, E> subGraph : subGraphs) {
-			preds.addAll(subGraph.getPredecessors(node));
+	@SuppressWarnings("unchecked")
+	public Collection<? extends N> getPredecessors(final N node) {
+		Object owners = membership.owners(node);
+		if (owners == null) {
+			return Collections.emptyList();
+		} else if (owners instanceof IGraph) {
+			return Collections.unmodifiableCollection(((IGraph<N, E>) owners)
+					.getPredecessors(node));
 		}
-		return preds;
+		return new UnionView<N>((IGraph<N, E>[]) owners) {
+			@Override
+			Collection<? extends N> get(IGraph<N, E> graph) {
+				return graph.getPredecessors(node);
+			}
+		};
 	}
 
 	@Override
-	public Collection<? extends N> getSuccessors(N node) {
-		Set<N> succs = new HashSet<N>();
-		for (IGraph<N, E> subGraph : subGraphs) {
-			succs.addAll(subGraph.getSuccessors(node));
+	@SuppressWarnings("unchecked")
+	public Collection<? extends N> getSuccessors(final N node) {
+		Object owners = membership.owners(node);
+		if (owners == null) {
+			return Collections.emptyList();
+		} else if (owners instanceof IGraph) {
+			return Collections.unmodifiableCollection(((IGraph<N, E>) owners)
+					.getSuccessors(node));
 		}
-		return succs;
+		return new UnionView<N>((IGraph<N, E>[]) owners) {
+			@Override
+			Collection<? extends N> get(IGraph<N, E> graph) {
+				return graph.getSuccessors(node);
+			}
+		};
 	}
 
 	@Override
+	@SuppressWarnings("unchecked")
 	public boolean containsEdge(E edge, N pred, N succ) {
-		for (IGraph<N, E> subGraph : subGraphs) {
-			if (subGraph.containsEdge(edge, pred, succ)) {
-				return true;
+		Object owners = membership.owners(pred);
+		if (owners instanceof IGraph) {
+			return ((IGraph<N, E>) owners).containsEdge(edge, pred, succ);
+		} else if (owners != null) {
+			for (IGraph<N, E> subGraph : (IGraph<N, E>[]) owners) {
+				if (subGraph.containsEdge(edge, pred, succ)) {
+					return true;
+				}
 			}
 		}
 		return false;
@@ -113,12 +460,74 @@ public class UnionGraph<N, E> implements IUnionGraph<N, E> {
 	
 	@Override
 	public boolean containsNode(N node) {
-		for (IGraph<N, E> subGraph : subGraphs) {
-			if (subGraph.containsNode(node)) {
-				return true;
+		return membership.owners(node) != null;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public int inDegree(N node) {
+		Object owners = membership.owners(node);
+		if (owners instanceof IGraph) {
+			return ((IGraph<N, E>) owners).inDegree(node);
+		}
+		return owners == null ? 0 : getInEdges(node).size();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public int outDegree(N node) {
+		Object owners = membership.owners(node);
+		if (owners instanceof IGraph) {
+			return ((IGraph<N, E>) owners).outDegree(node);
+		}
+		return owners == null ? 0 : getOutEdges(node).size();
+	}
+
+	@Override
+	public Collection<? extends N> getSources() {
+		return select(true);
+	}
+
+	@Override
+	public Collection<? extends N> getSinks() {
+		return select(false);
+	}
+
+	/*
+	 * A node is a source (sink) of the union if it is a source (sink) of all
+	 * members that contain it.
+	 */
+	@SuppressWarnings("unchecked")
+	private Collection<? extends N> select(boolean sources) {
+		IGraph<N, E>[] graphs = this.graphs;
+		if (graphs.length == 1) {
+			return Collections.unmodifiableCollection(sources ? graphs[0]
+					.getSources() : graphs[0].getSinks());
+		}
+		List<N> selected = new ArrayList<N>();
+		for (IGraph<N, E> graph : graphs) {
+			for (N node : sources ? graph.getSources() : graph.getSinks()) {
+				Object owners = membership.owners(node);
+				if (owners instanceof IGraph) {
+					selected.add(node);
+				} else if (owners != null) {
+					IGraph<N, E>[] array = (IGraph<N, E>[]) owners;
+					// only report the node for its first member
+					if (array[0] != graph) {
+						continue;
+					}
+					boolean accept = true;
+					for (int i = 1; accept && i < array.length; i++) {
+						accept = (sources ? array[i].inDegree(node)
+								: array[i].outDegree(node)) == 0;
+					}
+					if (accept) {
+						selected.add(node);
+					}
+				}
 			}
 		}
-		return false;
+		return selected;
 	}
 
 	@Override
@@ -141,4 +550,157 @@ public class UnionGraph<N, E> implements IUnionGraph<N, E> {
 		}
 	}
 
+	/*
+	 * Lazy union of the collections that the member graphs return for a
+	 * query. An element is skipped if it is also contained in the collection
+	 * of an earlier member.
+	 *
+	 * The view is not cached, hence size() iterates all member collections
+	 * and checks each element against the earlier members. This takes time
+	 * proportional to the total size times the number of members.
+	 */
+	private abstract class UnionView<T> extends AbstractCollection<T> {
+		final IGraph<N, E>[] members;
+
+		UnionView(IGraph<N, E>[] members) {
+			this.members = members;
+		}
+
+		abstract Collection<? extends T> get(IGraph<N, E> graph);
+
+		boolean contains(IGraph<N, E> graph, T element) {
+			return get(graph).contains(element);
+		}
+
+		private boolean containedBefore(int i, T element) {
+			for (int j = 0; j < i; j++) {
+				if (contains(members[j], element)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+			return new Iterator<T>() {
+				int i = -1;
+				Iterator<? extends T> it = Collections.<T> emptyList()
+						.iterator();
+				T next;
+				boolean hasNext;
+
+				public boolean hasNext() {
+					while (!hasNext) {
+						if (it.hasNext()) {
+							T element = it.next();
+							if (i == 0 || !containedBefore(i, element)) {
+								next = element;
+								hasNext = true;
+							}
+						} else if (++i < members.length) {
+							it = get(members[i]).iterator();
+						} else {
+							return false;
+						}
+					}
+					return true;
+				}
+
+				public T next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					hasNext = false;
+					T element = next;
+					next = null;
+					return element;
+				}
+
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public boolean contains(Object o) {
+			for (IGraph<N, E> member : members) {
+				if (contains(member, (T) o)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			for (IGraph<N, E> member : members) {
+				if (!get(member).isEmpty()) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public int size() {
+			int size = 0;
+			for (int i = 0; i < members.length; i++) {
+				if (i == 0) {
+					size += get(members[i]).size();
+				} else {
+					for (T element : get(members[i])) {
+						if (!containedBefore(i, element)) {
+							size++;
+						}
+					}
+				}
+			}
+			return size;
+		}
+	}
+
+	/*
+	 * Union of the in- or out-edges of a node, optionally restricted to a
+	 * label. Duplicates are detected by containsEdge.
+	 */
+	private abstract class EdgeView extends UnionView<IEdge<N, E>> {
+		final N node;
+		final boolean out;
+		final boolean labeled;
+		final E label;
+
+		EdgeView(IGraph<N, E>[] members, N node, boolean out, boolean labeled,
+				E label) {
+			super(members);
+			this.node = node;
+			this.out = out;
+			this.labeled = labeled;
+			this.label = label;
+		}
+
+		@Override
+		boolean contains(IGraph<N, E> graph, IEdge<N, E> edge) {
+			return graph.containsEdge(edge.getData(), edge.getStart(),
+					edge.getEnd());
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			if (!(o instanceof IEdge)) {
+				return false;
+			}
+			IEdge<?, ?> edge = (IEdge<?, ?>) o;
+			// containsEdge alone would accept edges of other nodes
+			return equal(out ? edge.getStart() : edge.getEnd(), node)
+					&& (!labeled || equal(edge.getData(), label))
+					&& super.contains(o);
+		}
+	}
+
+	private static boolean equal(Object a, Object b) {
+		return a == b || a != null && a.equals(b);
+	}
 }
@@ -0,0 +1,121 @@
+package net.enilink.commons.ds.graph.algorithm;
+
+import java.util.Collection;
+import java.util.Set;
+
+import net.enilink.commons.ds.graph.GraphEvent;
+import net.enilink.commons.ds.graph.IEdge;
+import net.enilink.commons.ds.graph.IGraphListener;
+import net.enilink.commons.ds.graph.IObservableGraph;
+import net.enilink.commons.ds.misc.DisjointSet;
+
+/**
+ * Maintains the weakly connected components of an {@link IObservableGraph}
+ * while nodes and edges are added.
+ * <p>
+ *
+ * The tracker registers itself as listener of the graph and applies added
+ * nodes and edges to a {@link DisjointSet}, hence queries take nearly
+ * constant time without any recomputation. Removals may split components,
+ * which a union-find can not represent. After a removal the components are
+ * therefore computed again from the graph on the next query.
+ * <p>
+ *
+ * Changes within a batch of the graph are applied when the batch ends.
+ */
+public class ComponentTracker<N, E> implements IGraphListener<N, E> {
+	protected final IObservableGraph<N, E> graph;
+
+	private DisjointSet<N> components;
+	private boolean stale;
+
+	public ComponentTracker(IObservableGraph<N, E> graph) {
+		this.graph = graph;
+		rebuild();
+		graph.addGraphListener(this);
+	}
+
+	/**
+	 * Stops tracking the changes of the graph.
+	 */
+	public void dispose() {
+		graph.removeGraphListener(this);
+	}
+
+	public IObservableGraph<N, E> getGraph() {
+		return graph;
+	}
+
+	public void graphChanged(GraphEvent<N, E> event) {
+		if (stale) {
+			return;
+		}
+		if (!event.getRemovedNodes().isEmpty()
+				|| !event.getRemovedEdges().isEmpty()) {
+			stale = true;
+			return;
+		}
+		components.addAll(event.getAddedNodes());
+		for (IEdge<N, E> edge : event.getAddedEdges()) {
+			components.add(edge.getStart());
+			components.add(edge.getEnd());
+			components.union(edge.getStart(), edge.getEnd());
+		}
+	}
+
+	private void rebuild() {
+		components = new DisjointSet<N>();
+		Collection<? extends N> nodes = graph.getNodes();
+		components.addAll(nodes);
+		for (N node : nodes) {
+			for (N succ : graph.getSuccessors(node)) {
+				components.union(node, succ);
+			}
+		}
+		stale = false;
+	}
+
+	private DisjointSet<N> components() {
+		if (stale) {
+			rebuild();
+		}
+		return components;
+	}
+
+	/**
+	 * Returns the representative of the component of a node or
+	 * <code>null</code> if the node is not contained in the graph.
+	 */
+	public N componentOf(N node) {
+		return components().find(node);
+	}
+
+	/**
+	 * Returns <code>true</code> if both nodes are contained in the graph and
+	 * connected by a path of edges in either direction.
+	 */
+	public boolean sameComponent(N a, N b) {
+		DisjointSet<N> components = components();
+		N component = components.find(a);
+		return component != null && component.equals(components.find(b));
+	}
+
+	/**
+	 * Returns the number of nodes in the component of a node or
+	 * <code>0</code> if the node is not contained in the graph.
+	 */
+	public int getComponentSize(N node) {
+		return components().sizeOf(node);
+	}
+
+	public int getComponentCount() {
+		return components().size();
+	}
+
+	/**
+	 * Returns the nodes of all components.
+	 */
+	public Collection<Set<N>> getComponents() {
+		return components().getSubSets();
+	}
+}
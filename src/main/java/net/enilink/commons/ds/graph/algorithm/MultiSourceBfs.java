@@ -0,0 +1,253 @@
+package net.enilink.commons.ds.graph.algorithm;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.enilink.commons.ds.graph.CsrGraph;
+import net.enilink.commons.ds.graph.IGraph;
+
+/**
+ * Runs up to 64 breadth-first searches on the same graph at once.
+ * <p>
+ *
+ * Each query is a start node with an optional maximum depth. The searches
+ * share a single pass over the adjacency of the graph per level: every node
+ * keeps one bit per query in a <code>long</code> for the queries that have
+ * already seen it and for those that visit it in the current and in the next
+ * level, so that a node which is reached by many queries at the same level is
+ * only expanded once.
+ * <p>
+ *
+ * The search runs on a {@link CsrGraph}, other graphs are copied into one
+ * first. The nodes that each query reached are afterwards available per
+ * level.
+ */
+public class MultiSourceBfs<N, E> {
+	public static final int MAX_QUERIES = 64;
+
+	/*
+	 * The nodes reached by one query in the order of their levels.
+	 */
+	static final class Result {
+		int[] nodes = new int[16];
+		int size;
+		// end positions of the levels within nodes
+		int[] levelEnds = new int[4];
+		int depth;
+
+		void add(int v) {
+			if (size == nodes.length) {
+				nodes = Arrays.copyOf(nodes, size + (size >> 1));
+			}
+			nodes[size++] = v;
+		}
+
+		void endLevel() {
+			if (depth == levelEnds.length) {
+				levelEnds = Arrays.copyOf(levelEnds, depth * 2);
+			}
+			levelEnds[depth++] = size;
+		}
+	}
+
+	protected final CsrGraph<N, E> graph;
+
+	private final int[] sources = new int[MAX_QUERIES];
+	private final int[] maxDepths = new int[MAX_QUERIES];
+	private int queryCount;
+
+	private Result[] results = new Result[0];
+
+	public MultiSourceBfs(IGraph<N, E> graph) {
+		this.graph = graph instanceof CsrGraph ? (CsrGraph<N, E>) graph
+				: new CsrGraph<N, E>(graph);
+	}
+
+	public CsrGraph<N, E> getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Adds an unbounded query and returns its number.
+	 */
+	public int addQuery(N source) {
+		return addQuery(source, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Adds a query for the nodes within <code>maxDepth</code> hops of
+	 * <code>source</code> and returns its number.
+	 */
+	public int addQuery(N source, int maxDepth) {
+		if (queryCount == MAX_QUERIES) {
+			throw new IllegalStateException("Too many queries, at most "
+					+ MAX_QUERIES + " are supported");
+		}
+		if (maxDepth < 0) {
+			throw new IllegalArgumentException("Invalid maximum depth: "
+					+ maxDepth);
+		}
+		int v = graph.getId(source);
+		if (v < 0) {
+			throw new IllegalArgumentException("Unknown node: " + source);
+		}
+		sources[queryCount] = v;
+		maxDepths[queryCount] = maxDepth;
+		return queryCount++;
+	}
+
+	public int getQueryCount() {
+		return queryCount;
+	}
+
+	/**
+	 * Removes all queries and their results.
+	 */
+	public void clear() {
+		queryCount = 0;
+		results = new Result[0];
+	}
+
+	/**
+	 * Runs all queries that were added.
+	 */
+	public void run() {
+		int n = graph.getNodeCount();
+		long[] seen = new long[n], visit = new long[n], visitNext = new long[n];
+
+		results = new Result[queryCount];
+		for (int q = 0; q < queryCount; q++) {
+			results[q] = new Result();
+			int v = sources[q];
+			seen[v] |= 1L << q;
+			visit[v] |= 1L << q;
+			results[q].add(v);
+			results[q].endLevel();
+		}
+
+		for (int level = 1;; level++) {
+			// the queries that may still reach nodes at this level
+			long active = 0;
+			for (int q = 0; q < queryCount; q++) {
+				if (maxDepths[q] >= level) {
+					active |= 1L << q;
+				}
+			}
+			boolean found = false;
+			if (active != 0) {
+				for (int u = 0; u < n; u++) {
+					long queries = visit[u] & active;
+					if (queries == 0) {
+						continue;
+					}
+					for (int e = graph.getOutStart(u), end = graph.getOutEnd(u); e < end; e++) {
+						int v = graph.getTarget(e);
+						long reached = queries & ~seen[v];
+						if (reached != 0) {
+							visitNext[v] |= reached;
+							seen[v] |= reached;
+							found = true;
+						}
+					}
+				}
+			}
+			if (!found) {
+				break;
+			}
+
+			for (int v = 0; v < n; v++) {
+				long queries = visitNext[v];
+				while (queries != 0) {
+					results[Long.numberOfTrailingZeros(queries)].add(v);
+					queries &= queries - 1;
+				}
+			}
+			for (int q = 0; q < queryCount; q++) {
+				if ((active & (1L << q)) != 0) {
+					results[q].endLevel();
+				}
+			}
+
+			long[] visited = visit;
+			visit = visitNext;
+			visitNext = visited;
+			Arrays.fill(visitNext, 0);
+		}
+		// drop trailing levels without nodes
+		for (Result result : results) {
+			while (result.depth > 1
+					&& result.levelEnds[result.depth - 1] == result.levelEnds[result.depth - 2]) {
+				result.depth--;
+			}
+		}
+	}
+
+	private Result result(int query) {
+		if (query < 0 || query >= results.length) {
+			throw new IndexOutOfBoundsException("Query: " + query
+					+ ", results: " + results.length);
+		}
+		return results[query];
+	}
+
+	/**
+	 * Returns the nodes that a query reached ordered by their levels,
+	 * starting with its start node.
+	 */
+	public List<N> getReached(int query) {
+		Result result = result(query);
+		return new NodeList(result.nodes, 0, result.size);
+	}
+
+	/**
+	 * Returns the nodes that a query reached at the given level.
+	 */
+	public List<N> getReached(int query, int level) {
+		Result result = result(query);
+		if (level < 0 || level >= result.depth) {
+			return new NodeList(result.nodes, 0, 0);
+		}
+		int start = level == 0 ? 0 : result.levelEnds[level - 1];
+		return new NodeList(result.nodes, start, result.levelEnds[level]);
+	}
+
+	public int getReachedCount(int query) {
+		return result(query).size;
+	}
+
+	/**
+	 * Returns the highest level at which a query reached a node.
+	 */
+	public int getDepth(int query) {
+		return result(query).depth - 1;
+	}
+
+	/*
+	 * View of a range of node ids as nodes.
+	 */
+	private class NodeList extends AbstractList<N> {
+		final int[] ids;
+		final int start, end;
+
+		NodeList(int[] ids, int start, int end) {
+			this.ids = ids;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public N get(int index) {
+			if (index < 0 || index >= end - start) {
+				throw new IndexOutOfBoundsException("Index: " + index
+						+ ", size: " + (end - start));
+			}
+			return graph.getNode(ids[start + index]);
+		}
+
+		@Override
+		public int size() {
+			return end - start;
+		}
+	}
+}
@@ -0,0 +1,345 @@
+package net.enilink.commons.ds.graph.algorithm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.enilink.commons.ds.graph.CsrGraph;
+import net.enilink.commons.ds.graph.IGraph;
+
+/**
+ * Level-synchronous breadth-first search whose levels are expanded in
+ * parallel on a {@link ForkJoinPool}.
+ * <p>
+ *
+ * The search runs on a {@link CsrGraph}, other graphs are copied into one
+ * first. The frontier and the visited nodes are kept in bitsets over the node
+ * ids. A level is expanded either top-down, where the frontier nodes claim
+ * their unvisited successors, or bottom-up, where each unvisited node looks
+ * for one of its predecessors in the frontier and stops at the first hit. The
+ * direction is chosen per level by comparing the out-edges of the frontier
+ * with the in-edges of the unvisited nodes, so that large frontiers in the
+ * middle of a search do not have to check every edge.
+ * <p>
+ *
+ * After {@link #run(Object)} the level and the BFS parent of each reached node
+ * can be queried. An instance must not be used by several threads at once.
+ */
+public class ParallelBfs<N, E> {
+	// switch to bottom-up if the frontier has more than 1 / ALPHA of the
+	// unexplored edges, back to top-down if it has less than 1 / BETA of the
+	// nodes
+	static final int ALPHA = 14, BETA = 24;
+
+	// number of bitset words (64 nodes each) processed by one task
+	static final int GRAIN = 64;
+
+	private static ForkJoinPool sharedPool;
+
+	protected final CsrGraph<N, E> graph;
+	protected final ForkJoinPool pool;
+
+	private int maxDepth = Integer.MAX_VALUE;
+
+	private int[] levels, parents;
+	private AtomicLongArray visited, frontier, next;
+	private int depth, reachedCount;
+
+	/**
+	 * Creates a search that uses a shared pool with one thread per processor.
+	 */
+	public ParallelBfs(IGraph<N, E> graph) {
+		this(graph, sharedPool());
+	}
+
+	public ParallelBfs(IGraph<N, E> graph, ForkJoinPool pool) {
+		this.graph = graph instanceof CsrGraph ? (CsrGraph<N, E>) graph
+				: new CsrGraph<N, E>(graph);
+		this.pool = pool;
+	}
+
+	static synchronized ForkJoinPool sharedPool() {
+		if (sharedPool == null) {
+			sharedPool = new ForkJoinPool(Runtime.getRuntime()
+					.availableProcessors());
+		}
+		return sharedPool;
+	}
+
+	public CsrGraph<N, E> getGraph() {
+		return graph;
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Limits the search to the nodes within <code>maxDepth</code> hops of the
+	 * start nodes.
+	 */
+	public ParallelBfs<N, E> setMaxDepth(int maxDepth) {
+		if (maxDepth < 0) {
+			throw new IllegalArgumentException("Invalid maximum depth: "
+					+ maxDepth);
+		}
+		this.maxDepth = maxDepth;
+		return this;
+	}
+
+	public void run(N source) {
+		run(Collections.singleton(source));
+	}
+
+	/**
+	 * Runs the search from all given start nodes at once, they all get the
+	 * level <code>0</code>.
+	 */
+	public void run(Collection<? extends N> sources) {
+		int n = graph.getNodeCount(), words = (n + 63) >>> 6;
+		levels = new int[n];
+		parents = new int[n];
+		for (int v = 0; v < n; v++) {
+			levels[v] = -1;
+			parents[v] = -1;
+		}
+		visited = new AtomicLongArray(words);
+		frontier = new AtomicLongArray(words);
+		next = new AtomicLongArray(words);
+
+		int frontierSize = 0;
+		long frontierEdges = 0, unexploredEdges = graph.getEdgeCount();
+		for (N source : sources) {
+			int v = graph.getId(source);
+			if (v < 0) {
+				throw new IllegalArgumentException("Unknown node: " + source);
+			}
+			if (claim(visited, v)) {
+				levels[v] = 0;
+				claim(frontier, v);
+				frontierSize++;
+				frontierEdges += graph.getOutEnd(v) - graph.getOutStart(v);
+				unexploredEdges -= graph.getInEnd(v) - graph.getInStart(v);
+			}
+		}
+		depth = 0;
+		reachedCount = frontierSize;
+
+		boolean bottomUp = false;
+		for (int level = 1; frontierSize > 0 && level <= maxDepth; level++) {
+			if (bottomUp) {
+				bottomUp = frontierSize >= n / BETA;
+			} else {
+				bottomUp = frontierEdges > unexploredEdges / ALPHA;
+			}
+			Expand expand = new Expand(bottomUp, level, 0, words);
+			if (words > GRAIN) {
+				pool.invoke(expand);
+			} else {
+				expand.compute();
+			}
+			if (expand.count > 0) {
+				depth = level;
+			}
+			frontierSize = expand.count;
+			frontierEdges = expand.outEdges;
+			unexploredEdges -= expand.inEdges;
+			reachedCount += expand.count;
+
+			AtomicLongArray expanded = frontier;
+			frontier = next;
+			next = expanded;
+			for (int w = 0; w < words; w++) {
+				next.set(w, 0);
+			}
+		}
+		frontier = next = null;
+	}
+
+	/*
+	 * Atomically sets the bit of node v, returns false if it was already set.
+	 */
+	static boolean claim(AtomicLongArray bits, int v) {
+		int w = v >>> 6;
+		long mask = 1L << v;
+		while (true) {
+			long word = bits.get(w);
+			if ((word & mask) != 0) {
+				return false;
+			}
+			if (bits.compareAndSet(w, word, word | mask)) {
+				return true;
+			}
+		}
+	}
+
+	/*
+	 * Expands the current frontier within a range of bitset words. Top-down
+	 * the range selects the frontier nodes, bottom-up the unvisited nodes,
+	 * which are then only modified by this task.
+	 */
+	class Expand extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final boolean bottomUp;
+		final int level, from, to;
+
+		// the newly reached nodes and the sums of their out- and in-degrees
+		int count;
+		long outEdges, inEdges;
+
+		Expand(boolean bottomUp, int level, int from, int to) {
+			this.bottomUp = bottomUp;
+			this.level = level;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > GRAIN) {
+				int mid = (from + to) >>> 1;
+				Expand left = new Expand(bottomUp, level, from, mid);
+				Expand right = new Expand(bottomUp, level, mid, to);
+				invokeAll(left, right);
+				count = left.count + right.count;
+				outEdges = left.outEdges + right.outEdges;
+				inEdges = left.inEdges + right.inEdges;
+			} else if (bottomUp) {
+				bottomUp();
+			} else {
+				topDown();
+			}
+		}
+
+		void topDown() {
+			for (int w = from; w < to; w++) {
+				long word = frontier.get(w);
+				while (word != 0) {
+					int u = (w << 6) + Long.numberOfTrailingZeros(word);
+					word &= word - 1;
+					for (int e = graph.getOutStart(u), end = graph.getOutEnd(u); e < end; e++) {
+						int v = graph.getTarget(e);
+						if (claim(visited, v)) {
+							reached(v, u);
+							claim(next, v);
+						}
+					}
+				}
+			}
+		}
+
+		void bottomUp() {
+			int n = levels.length;
+			for (int w = from; w < to; w++) {
+				long unvisited = ~visited.get(w);
+				if (w == (n - 1) >>> 6 && (n & 63) != 0) {
+					unvisited &= (1L << n) - 1;
+				}
+				long found = 0;
+				while (unvisited != 0) {
+					int v = (w << 6) + Long.numberOfTrailingZeros(unvisited);
+					unvisited &= unvisited - 1;
+					for (int i = graph.getInStart(v), end = graph.getInEnd(v); i < end; i++) {
+						int u = graph.getSource(i);
+						if ((frontier.get(u >>> 6) & (1L << u)) != 0) {
+							reached(v, u);
+							found |= 1L << v;
+							break;
+						}
+					}
+				}
+				if (found != 0) {
+					visited.set(w, visited.get(w) | found);
+					next.set(w, found);
+				}
+			}
+		}
+
+		void reached(int v, int parent) {
+			levels[v] = level;
+			parents[v] = parent;
+			count++;
+			outEdges += graph.getOutEnd(v) - graph.getOutStart(v);
+			inEdges += graph.getInEnd(v) - graph.getInStart(v);
+		}
+	}
+
+	/**
+	 * Returns the level of a node or <code>-1</code> if it was not reached.
+	 */
+	public int getLevel(N node) {
+		int v = graph.getId(node);
+		return v < 0 ? -1 : levels[v];
+	}
+
+	/**
+	 * Returns the node from which a node was reached or <code>null</code> for
+	 * start nodes and nodes that were not reached.
+	 */
+	public N getParent(N node) {
+		int v = graph.getId(node);
+		return v < 0 || parents[v] < 0 ? null : graph.getNode(parents[v]);
+	}
+
+	/**
+	 * Returns a shortest path from one of the start nodes to
+	 * <code>node</code> or <code>null</code> if it was not reached.
+	 */
+	public List<N> getPath(N node) {
+		int v = graph.getId(node);
+		if (v < 0 || levels[v] < 0) {
+			return null;
+		}
+		LinkedList<N> path = new LinkedList<N>();
+		for (; v >= 0; v = parents[v]) {
+			path.addFirst(graph.getNode(v));
+		}
+		return path;
+	}
+
+	/**
+	 * Returns the reached nodes ordered by their ids.
+	 */
+	public List<N> getReached() {
+		List<N> reached = new ArrayList<N>(reachedCount);
+		for (int v = 0; v < levels.length; v++) {
+			if (levels[v] >= 0) {
+				reached.add(graph.getNode(v));
+			}
+		}
+		return reached;
+	}
+
+	public int getReachedCount() {
+		return reachedCount;
+	}
+
+	/**
+	 * Returns the highest level of a reached node.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Returns the levels indexed by node id, <code>-1</code> for nodes that
+	 * were not reached.
+	 */
+	public int[] getLevels() {
+		return levels;
+	}
+
+	/**
+	 * Returns the ids of the parents indexed by node id, <code>-1</code> for
+	 * start nodes and nodes that were not reached.
+	 */
+	public int[] getParents() {
+		return parents;
+	}
+}
@@ -0,0 +1,488 @@
+package net.enilink.commons.ds.graph.algorithm;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.enilink.commons.ds.graph.CsrGraph;
+import net.enilink.commons.ds.graph.IGraph;
+
+/**
+ * Computes the strongly connected components of a graph and its condensation.
+ * <p>
+ *
+ * {@link #run()} uses Pearce's variant of Tarjan's algorithm with an explicit
+ * stack, hence it runs in linear time without any recursion. It numbers the
+ * components in topological order: every edge between two components leads
+ * to the one with the higher id.
+ * <p>
+ *
+ * {@link #runParallel()} first repeatedly removes nodes without predecessors
+ * or successors, which are components of their own, and then splits the
+ * remaining nodes on a {@link ForkJoinPool} into the nodes that are reachable
+ * from a pivot, the nodes that reach it and the others. The nodes in both of
+ * the first two sets form the component of the pivot, each set is then
+ * processed independently. Small sets are finished by the sequential
+ * algorithm. The component ids are dense but not ordered.
+ * <p>
+ *
+ * The search runs on a {@link CsrGraph}, other graphs are copied into one
+ * first.
+ */
+public class StronglyConnectedComponents<N, E> {
+	// sets of nodes up to this size are processed sequentially
+	static final int THRESHOLD = 1 << 12;
+
+	protected final CsrGraph<N, E> graph;
+	protected final ForkJoinPool pool;
+
+	// component id by node id
+	private int[] components;
+	private int count;
+
+	// created on demand
+	private int[] members, offsets;
+	private CsrGraph<Integer, E> condensation;
+
+	// Pearce's rindex and root flags, shared by all tasks for disjoint sets
+	// of nodes
+	private int[] rindex;
+	private boolean[] root;
+
+	/**
+	 * Creates an instance that uses a shared pool with one thread per
+	 * processor for {@link #runParallel()}.
+	 */
+	public StronglyConnectedComponents(IGraph<N, E> graph) {
+		this(graph, ParallelBfs.sharedPool());
+	}
+
+	public StronglyConnectedComponents(IGraph<N, E> graph, ForkJoinPool pool) {
+		this.graph = graph instanceof CsrGraph ? (CsrGraph<N, E>) graph
+				: new CsrGraph<N, E>(graph);
+		this.pool = pool;
+	}
+
+	public CsrGraph<N, E> getGraph() {
+		return graph;
+	}
+
+	public void run() {
+		int n = graph.getNodeCount();
+		reset(n);
+		AtomicInteger ids = new AtomicInteger();
+		search(null, n, null, 0, ids);
+		finish(ids);
+	}
+
+	public void runParallel() {
+		int n = graph.getNodeCount();
+		reset(n);
+		AtomicInteger ids = new AtomicInteger();
+		int[] colors = new int[n];
+		int[] remaining = trim(colors, ids);
+		if (remaining.length <= THRESHOLD) {
+			search(remaining, remaining.length, colors, 0, ids);
+		} else {
+			new Split(colors, ids).run(remaining);
+		}
+		finish(ids);
+	}
+
+	private void reset(int n) {
+		components = new int[n];
+		rindex = new int[n];
+		root = new boolean[n];
+		members = offsets = null;
+		condensation = null;
+	}
+
+	private void finish(AtomicInteger ids) {
+		count = ids.get();
+		rindex = null;
+		root = null;
+	}
+
+	/*
+	 * Pearce's algorithm for the given nodes (all if null) restricted to
+	 * those with the given color (all if colors is null). The ids of the
+	 * components are reserved from ids after the search.
+	 */
+	private void search(int[] nodes, int size, int[] colors, int color,
+			AtomicInteger ids) {
+		int[] rindex = this.rindex;
+		boolean[] root = this.root;
+		int[] callNodes = new int[size], callEdges = new int[size];
+		int[] stack = new int[size];
+		int index = 1, c = size - 1, sp = 0;
+		for (int i = 0; i < size; i++) {
+			int s = nodes == null ? i : nodes[i];
+			if (rindex[s] != 0) {
+				continue;
+			}
+			rindex[s] = index++;
+			root[s] = true;
+			callNodes[0] = s;
+			callEdges[0] = graph.getOutStart(s);
+			int top = 1;
+			while (top > 0) {
+				int v = callNodes[top - 1], e = callEdges[top - 1];
+				if (e < graph.getOutEnd(v)) {
+					int w = graph.getTarget(e);
+					if (colors != null && colors[w] != color) {
+						callEdges[top - 1]++;
+					} else if (rindex[w] == 0) {
+						rindex[w] = index++;
+						root[w] = true;
+						callNodes[top] = w;
+						callEdges[top] = graph.getOutStart(w);
+						top++;
+					} else {
+						if (rindex[w] < rindex[v]) {
+							rindex[v] = rindex[w];
+							root[v] = false;
+						}
+						callEdges[top - 1]++;
+					}
+				} else {
+					top--;
+					if (root[v]) {
+						index--;
+						while (sp > 0 && rindex[v] <= rindex[stack[sp - 1]]) {
+							rindex[stack[--sp]] = c;
+							index--;
+						}
+						rindex[v] = c--;
+					} else {
+						stack[sp++] = v;
+					}
+					if (top > 0) {
+						// continue with the edge of the parent that led to v
+						int u = callNodes[top - 1];
+						if (rindex[v] < rindex[u]) {
+							rindex[u] = rindex[v];
+							root[u] = false;
+						}
+						callEdges[top - 1]++;
+					}
+				}
+			}
+		}
+		// components were numbered downwards from size - 1
+		int base = ids.getAndAdd(size - 1 - c) - (c + 1);
+		for (int i = 0; i < size; i++) {
+			int v = nodes == null ? i : nodes[i];
+			components[v] = base + rindex[v];
+		}
+	}
+
+	/*
+	 * Removes nodes without remaining predecessors or successors as single
+	 * components until none is left, marks them with color -1 and returns
+	 * the other nodes.
+	 */
+	private int[] trim(int[] colors, AtomicInteger ids) {
+		int n = colors.length;
+		int[] in = new int[n], out = new int[n];
+		int[] queue = new int[n];
+		int head = 0, tail = 0;
+		for (int v = 0; v < n; v++) {
+			in[v] = graph.getInEnd(v) - graph.getInStart(v);
+			out[v] = graph.getOutEnd(v) - graph.getOutStart(v);
+			if (in[v] == 0 || out[v] == 0) {
+				colors[v] = -1;
+				queue[tail++] = v;
+			}
+		}
+		while (head < tail) {
+			int v = queue[head++];
+			components[v] = ids.getAndIncrement();
+			for (int e = graph.getOutStart(v), end = graph.getOutEnd(v); e < end; e++) {
+				int w = graph.getTarget(e);
+				if (colors[w] == 0 && --in[w] == 0) {
+					colors[w] = -1;
+					queue[tail++] = w;
+				}
+			}
+			for (int i = graph.getInStart(v), end = graph.getInEnd(v); i < end; i++) {
+				int u = graph.getSource(i);
+				if (colors[u] == 0 && --out[u] == 0) {
+					colors[u] = -1;
+					queue[tail++] = u;
+				}
+			}
+		}
+		int[] remaining = new int[n - tail];
+		for (int v = 0, i = 0; v < n; v++) {
+			if (colors[v] == 0) {
+				remaining[i++] = v;
+			}
+		}
+		return remaining;
+	}
+
+	/*
+	 * Forward-backward splitting of disjoint sets of nodes. Each set has a
+	 * unique color and its nodes are only read and written by the task for
+	 * this set. A task forks the tasks for the forward and backward subsets,
+	 * continues with the remaining nodes itself and finally joins the forked
+	 * tasks.
+	 */
+	private class Split {
+		final int[] colors;
+		final AtomicInteger ids;
+		final AtomicInteger nextColor = new AtomicInteger();
+
+		Split(int[] colors, AtomicInteger ids) {
+			this.colors = colors;
+			this.ids = ids;
+		}
+
+		void run(int[] nodes) {
+			pool.invoke(new Task(nodes, 0));
+		}
+
+		class Task extends RecursiveAction {
+			private static final long serialVersionUID = 1L;
+
+			final int[] nodes;
+			final int color;
+
+			Task(int[] nodes, int color) {
+				this.nodes = nodes;
+				this.color = color;
+			}
+
+			@Override
+			protected void compute() {
+				List<Task> forked = new ArrayList<Task>();
+				int[] nodes = this.nodes;
+				while (nodes.length > THRESHOLD) {
+					nodes = split(nodes, forked);
+				}
+				if (nodes.length > 0) {
+					search(nodes, nodes.length, colors, color, ids);
+				}
+				// join in reverse order, the last forked task is the most
+				// likely one to be still in the local queue
+				for (int i = forked.size() - 1; i >= 0; i--) {
+					forked.get(i).join();
+				}
+			}
+
+			/*
+			 * Splits off the component of a pivot, forks the tasks for the
+			 * forward and backward subsets and returns the remaining nodes.
+			 */
+			int[] split(int[] nodes, List<Task> forked) {
+				int forward = nextColor.incrementAndGet();
+				int backward = nextColor.incrementAndGet();
+				int pivot = nodes[nodes.length >>> 1];
+
+				int[] queue = new int[nodes.length];
+				int head = 0, tail = 0;
+				colors[pivot] = forward;
+				queue[tail++] = pivot;
+				while (head < tail) {
+					int v = queue[head++];
+					for (int e = graph.getOutStart(v), end = graph.getOutEnd(v); e < end; e++) {
+						int w = graph.getTarget(e);
+						if (colors[w] == color) {
+							colors[w] = forward;
+							queue[tail++] = w;
+						}
+					}
+				}
+
+				// nodes that are reached in both directions are marked with -1
+				int id = ids.getAndIncrement();
+				head = tail = 0;
+				colors[pivot] = -1;
+				components[pivot] = id;
+				queue[tail++] = pivot;
+				while (head < tail) {
+					int v = queue[head++];
+					for (int i = graph.getInStart(v), end = graph.getInEnd(v); i < end; i++) {
+						int u = graph.getSource(i);
+						if (colors[u] == forward) {
+							colors[u] = -1;
+							components[u] = id;
+							queue[tail++] = u;
+						} else if (colors[u] == color) {
+							colors[u] = backward;
+							queue[tail++] = u;
+						}
+					}
+				}
+
+				int forwardSize = 0, backwardSize = 0, otherSize = 0;
+				for (int v : nodes) {
+					int c = colors[v];
+					if (c == forward) {
+						forwardSize++;
+					} else if (c == backward) {
+						backwardSize++;
+					} else if (c == color) {
+						otherSize++;
+					}
+				}
+				fork(subset(nodes, forward, forwardSize), forward, forked);
+				fork(subset(nodes, backward, backwardSize), backward, forked);
+				// the remaining nodes keep the color of this set
+				return subset(nodes, color, otherSize);
+			}
+
+			void fork(int[] subset, int color, List<Task> forked) {
+				if (subset.length > 0) {
+					Task task = new Task(subset, color);
+					task.fork();
+					forked.add(task);
+				}
+			}
+
+			int[] subset(int[] nodes, int color, int size) {
+				int[] subset = new int[size];
+				int i = 0;
+				for (int v : nodes) {
+					if (colors[v] == color) {
+						subset[i++] = v;
+					}
+				}
+				return subset;
+			}
+		}
+	}
+
+	public int getComponentCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the id of the component of a node or <code>-1</code> if the
+	 * node is not contained in the graph.
+	 */
+	public int getComponent(N node) {
+		int v = graph.getId(node);
+		return v < 0 ? -1 : components[v];
+	}
+
+	/**
+	 * Returns the component ids indexed by node id.
+	 */
+	public int[] getComponents() {
+		return components;
+	}
+
+	/**
+	 * Returns <code>true</code> if the graph contains no cycle, i.e. each
+	 * component consists of a single node without a loop.
+	 */
+	public boolean isAcyclic() {
+		if (count != graph.getNodeCount()) {
+			return false;
+		}
+		for (int v = 0; v < count; v++) {
+			for (int e = graph.getOutStart(v), end = graph.getOutEnd(v); e < end; e++) {
+				if (graph.getTarget(e) == v) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private void group() {
+		if (offsets != null) {
+			return;
+		}
+		int n = components.length;
+		int[] offsets = new int[count + 1];
+		for (int v = 0; v < n; v++) {
+			offsets[components[v] + 1]++;
+		}
+		for (int c = 0; c < count; c++) {
+			offsets[c + 1] += offsets[c];
+		}
+		members = new int[n];
+		int[] pos = Arrays.copyOf(offsets, count);
+		for (int v = 0; v < n; v++) {
+			members[pos[components[v]]++] = v;
+		}
+		this.offsets = offsets;
+	}
+
+	public int getComponentSize(int component) {
+		group();
+		return offsets[component + 1] - offsets[component];
+	}
+
+	/**
+	 * Returns the nodes of a component ordered by their ids.
+	 */
+	public List<N> getComponentNodes(int component) {
+		group();
+		final int start = offsets[component], end = offsets[component + 1];
+		return new AbstractList<N>() {
+			@Override
+			public N get(int index) {
+				if (index < 0 || index >= end - start) {
+					throw new IndexOutOfBoundsException("Index: " + index
+							+ ", size: " + (end - start));
+				}
+				return graph.getNode(members[start + index]);
+			}
+
+			@Override
+			public int size() {
+				return end - start;
+			}
+		};
+	}
+
+	/**
+	 * Returns the condensation of the graph. Its nodes are the component ids
+	 * and it has one edge without label between two components if the graph
+	 * has at least one edge between their nodes.
+	 */
+	public CsrGraph<Integer, E> getCondensation() {
+		if (condensation != null) {
+			return condensation;
+		}
+		// the distinct pairs of components, grouped by source component
+		group();
+		int[] sources = new int[16], targets = new int[16];
+		int m = 0;
+		int[] last = new int[count];
+		Arrays.fill(last, -1);
+		for (int c = 0; c < count; c++) {
+			for (int k = offsets[c]; k < offsets[c + 1]; k++) {
+				int v = members[k];
+				for (int e = graph.getOutStart(v), end = graph.getOutEnd(v); e < end; e++) {
+					int d = components[graph.getTarget(e)];
+					if (d != c && last[d] != c) {
+						last[d] = c;
+						if (m == sources.length) {
+							sources = Arrays.copyOf(sources, m * 2);
+							targets = Arrays.copyOf(targets, m * 2);
+						}
+						sources[m] = c;
+						targets[m] = d;
+						m++;
+					}
+				}
+			}
+		}
+		Integer[] nodes = new Integer[count];
+		for (int c = 0; c < count; c++) {
+			nodes[c] = c;
+		}
+		condensation = CsrGraph.create(Arrays.asList(nodes),
+				Arrays.copyOf(sources, m), Arrays.copyOf(targets, m),
+				(List<E>) null);
+		return condensation;
+	}
+}
@@ -0,0 +1,327 @@
+package net.enilink.commons.ds.graph.algorithm;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import net.enilink.commons.ds.graph.CsrGraph;
+import net.enilink.commons.ds.graph.IEdge;
+import net.enilink.commons.ds.graph.IGraph;
+import net.enilink.commons.ds.misc.ConcurrentIntDisjointSet;
+
+/**
+ * Computes the weakly connected components of a graph in parallel.
+ * <p>
+ *
+ * The edges of disjoint node ranges are processed concurrently on a
+ * {@link ForkJoinPool} and merged into a {@link ConcurrentIntDisjointSet}
+ * over the node ids. Each component is then labeled with a dense id, ordered by the
+ * smallest node id within the component.
+ * <p>
+ *
+ * The search runs on a {@link CsrGraph}, other graphs are copied into one
+ * first. Subgraphs of single components are only created on request by
+ * {@link #getComponentGraph(int)} as read-only views on that graph.
+ */
+public class WeaklyConnectedComponents<N, E> {
+	// number of edges processed by one task
+	static final int THRESHOLD = 1 << 14;
+
+	protected final CsrGraph<N, E> graph;
+	protected final ForkJoinPool pool;
+
+	// component id by node id
+	private int[] components;
+	// the nodes grouped by component and the start of each group
+	private int[] members, offsets;
+
+	/**
+	 * Creates an instance that uses a shared pool with one thread per
+	 * processor.
+	 */
+	public WeaklyConnectedComponents(IGraph<N, E> graph) {
+		this(graph, ParallelBfs.sharedPool());
+	}
+
+	public WeaklyConnectedComponents(IGraph<N, E> graph, ForkJoinPool pool) {
+		this.graph = graph instanceof CsrGraph ? (CsrGraph<N, E>) graph
+				: new CsrGraph<N, E>(graph);
+		this.pool = pool;
+	}
+
+	public CsrGraph<N, E> getGraph() {
+		return graph;
+	}
+
+	public void run() {
+		int n = graph.getNodeCount();
+		ConcurrentIntDisjointSet sets = new ConcurrentIntDisjointSet(n);
+		Unite unite = new Unite(sets, 0, n);
+		if (graph.getEdgeCount() > THRESHOLD) {
+			pool.invoke(unite);
+		} else {
+			unite.compute();
+		}
+
+		// the root of each set is its smallest node and hence labeled first
+		components = new int[n];
+		int count = 0;
+		for (int v = 0; v < n; v++) {
+			int root = sets.find(v);
+			components[v] = root == v ? count++ : components[root];
+		}
+
+		offsets = new int[count + 1];
+		for (int v = 0; v < n; v++) {
+			offsets[components[v] + 1]++;
+		}
+		for (int c = 0; c < count; c++) {
+			offsets[c + 1] += offsets[c];
+		}
+		members = new int[n];
+		int[] pos = new int[count];
+		System.arraycopy(offsets, 0, pos, 0, count);
+		for (int v = 0; v < n; v++) {
+			members[pos[components[v]]++] = v;
+		}
+	}
+
+	/*
+	 * Unites the end nodes of the out-edges of a range of nodes.
+	 */
+	class Unite extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final ConcurrentIntDisjointSet sets;
+		final int from, to;
+
+		Unite(ConcurrentIntDisjointSet sets, int from, int to) {
+			this.sets = sets;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1
+					&& graph.getOutEnd(to - 1) - graph.getOutStart(from) > THRESHOLD) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new Unite(sets, from, mid), new Unite(sets, mid, to));
+			} else {
+				for (int u = from; u < to; u++) {
+					for (int e = graph.getOutStart(u), end = graph.getOutEnd(u); e < end; e++) {
+						sets.union(u, graph.getTarget(e));
+					}
+				}
+			}
+		}
+	}
+
+	public int getComponentCount() {
+		return offsets.length - 1;
+	}
+
+	/**
+	 * Returns the id of the component of a node or <code>-1</code> if the
+	 * node is not contained in the graph.
+	 */
+	public int getComponent(N node) {
+		int v = graph.getId(node);
+		return v < 0 ? -1 : components[v];
+	}
+
+	/**
+	 * Returns the component ids indexed by node id.
+	 */
+	public int[] getComponents() {
+		return components;
+	}
+
+	public int getComponentSize(int component) {
+		return offsets[component + 1] - offsets[component];
+	}
+
+	/**
+	 * Returns the nodes of a component ordered by their ids.
+	 */
+	public List<N> getComponentNodes(int component) {
+		return new NodeList(offsets[component], offsets[component + 1]);
+	}
+
+	/**
+	 * Returns a read-only view of the subgraph that consists of a single
+	 * component.
+	 */
+	public IGraph<N, E> getComponentGraph(int component) {
+		if (component < 0 || component >= getComponentCount()) {
+			throw new IndexOutOfBoundsException("Component: " + component
+					+ ", components: " + getComponentCount());
+		}
+		return new ComponentGraph(component);
+	}
+
+	/**
+	 * Returns views of the subgraphs for all components.
+	 */
+	public List<IGraph<N, E>> getComponentGraphs() {
+		List<IGraph<N, E>> graphs = new ArrayList<IGraph<N, E>>(
+				getComponentCount());
+		for (int c = 0; c < getComponentCount(); c++) {
+			graphs.add(new ComponentGraph(c));
+		}
+		return graphs;
+	}
+
+	/*
+	 * A range of the grouped nodes.
+	 */
+	private class NodeList extends AbstractList<N> {
+		final int start, end;
+
+		NodeList(int start, int end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public N get(int index) {
+			if (index < 0 || index >= end - start) {
+				throw new IndexOutOfBoundsException("Index: " + index
+						+ ", size: " + (end - start));
+			}
+			return graph.getNode(members[start + index]);
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public boolean contains(Object o) {
+			int v = graph.getId((N) o);
+			return v >= 0 && components[v] == components[members[start]];
+		}
+
+		@Override
+		public int size() {
+			return end - start;
+		}
+	}
+
+	/*
+	 * View of a component. The neighbours of its nodes are all within the
+	 * component, hence only queries for other nodes have to be filtered.
+	 */
+	private class ComponentGraph implements IGraph<N, E> {
+		final int component;
+
+		ComponentGraph(int component) {
+			this.component = component;
+		}
+
+		public boolean addNode(N n) {
+			throw new UnsupportedOperationException("Graph is read-only");
+		}
+
+		public boolean addEdge(E edge, N pred, N succ) {
+			throw new UnsupportedOperationException("Graph is read-only");
+		}
+
+		public boolean containsEdge(E edge, N pred, N succ) {
+			return containsNode(pred) && graph.containsEdge(edge, pred, succ);
+		}
+
+		public boolean containsNode(N node) {
+			return getComponent(node) == component;
+		}
+
+		public Collection<N> getSuccessors(N node) {
+			if (containsNode(node)) {
+				return graph.getSuccessors(node);
+			}
+			return Collections.emptyList();
+		}
+
+		public Collection<? extends IEdge<N, E>> getOutEdges(N node) {
+			if (containsNode(node)) {
+				return graph.getOutEdges(node);
+			}
+			return Collections.emptyList();
+		}
+
+		public Collection<? extends IEdge<N, E>> getInEdges(N node) {
+			if (containsNode(node)) {
+				return graph.getInEdges(node);
+			}
+			return Collections.emptyList();
+		}
+
+		public Collection<? extends IEdge<N, E>> getOutEdges(N node, E label) {
+			if (containsNode(node)) {
+				return graph.getOutEdges(node, label);
+			}
+			return Collections.emptyList();
+		}
+
+		public Collection<? extends IEdge<N, E>> getInEdges(N node, E label) {
+			if (containsNode(node)) {
+				return graph.getInEdges(node, label);
+			}
+			return Collections.emptyList();
+		}
+
+		public Collection<N> getPredecessors(N node) {
+			if (containsNode(node)) {
+				return graph.getPredecessors(node);
+			}
+			return Collections.emptyList();
+		}
+
+		public Collection<N> getNodes() {
+			return getComponentNodes(component);
+		}
+
+		public int inDegree(N node) {
+			return containsNode(node) ? graph.inDegree(node) : 0;
+		}
+
+		public int outDegree(N node) {
+			return containsNode(node) ? graph.outDegree(node) : 0;
+		}
+
+		public Collection<N> getSources() {
+			List<N> sources = new ArrayList<N>();
+			for (N node : getNodes()) {
+				if (graph.inDegree(node) == 0) {
+					sources.add(node);
+				}
+			}
+			return sources;
+		}
+
+		public Collection<N> getSinks() {
+			List<N> sinks = new ArrayList<N>();
+			for (N node : getNodes()) {
+				if (graph.outDegree(node) == 0) {
+					sinks.add(node);
+				}
+			}
+			return sinks;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			for (N node : getNodes()) {
+				for (IEdge<N, E> edge : graph.getOutEdges(node)) {
+					if (sb.length() > 0) {
+						sb.append("\n");
+					}
+					sb.append(edge);
+				}
+			}
+			return sb.toString();
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package net.enilink.commons.ds.misc;
+
+/**
+ * Simple bloom filter based on the hash codes of the elements.
+ * <p>
+ *
+ * The bit positions are derived from two mixed variants of
+ * {@link Object#hashCode()} by double hashing, hence elements which are equal
+ * must have equal hash codes.
+ *
+ * @param <E>
+ *            type of set elements
+ */
+public class BloomFilter<E> {
+	private final long[] bits;
+	private final long bitCount;
+	private final int hashCount;
+
+	/**
+	 * Creates a filter for the expected number of elements with the given
+	 * false positive probability.
+	 */
+	public BloomFilter(int expectedElements, double falsePositiveRate) {
+		if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+			throw new IllegalArgumentException(
+					"False positive rate must be in (0, 1): "
+							+ falsePositiveRate);
+		}
+		long n = Math.max(expectedElements, 1);
+		double ln2 = Math.log(2);
+		long m = (long) Math.ceil(-n * Math.log(falsePositiveRate)
+				/ (ln2 * ln2));
+		m = Math.min(Math.max(m, 64), (long) Integer.MAX_VALUE * 64);
+		bits = new long[(int) ((m + 63) >>> 6)];
+		bitCount = (long) bits.length * 64;
+		hashCount = Math.max(1, (int) Math.round((double) bitCount / n * ln2));
+	}
+
+	private static int mix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	/**
+	 * Adds an element and returns <code>true</code> if at least one bit
+	 * changed.
+	 */
+	public boolean add(E element) {
+		int h = element == null ? 0 : element.hashCode();
+		long h1 = mix(h) & 0xFFFFFFFFL, h2 = mix(h ^ 0x9e3779b9) | 1;
+		boolean changed = false;
+		for (int i = 0; i < hashCount; i++) {
+			long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitCount;
+			long mask = 1L << bit;
+			int word = (int) (bit >>> 6);
+			if ((bits[word] & mask) == 0) {
+				bits[word] |= mask;
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Returns <code>false</code> if the element was definitely not added.
+	 */
+	public boolean mightContain(Object element) {
+		int h = element == null ? 0 : element.hashCode();
+		long h1 = mix(h) & 0xFFFFFFFFL, h2 = mix(h ^ 0x9e3779b9) | 1;
+		for (int i = 0; i < hashCount; i++) {
+			long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitCount;
+			if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public void clear() {
+		for (int i = 0; i < bits.length; i++) {
+			bits[i] = 0;
+		}
+	}
+
+	public long getBitCount() {
+		return bitCount;
+	}
+
+	public int getHashCount() {
+		return hashCount;
+	}
+}
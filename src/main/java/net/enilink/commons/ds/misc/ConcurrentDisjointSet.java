@@ -0,0 +1,181 @@
+package net.enilink.commons.ds.misc;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Lock-free union-find tree data structure which may be used by several
+ * threads at once.
+ * <p>
+ *
+ * Each element gets a sequence number when it is added. Sets are linked by
+ * these numbers: the root with the larger number is linked below the other
+ * one by a single compare-and-set, hence concurrent links can not form
+ * cycles. {@link #find(Object)} splits the path to the root by pointing each
+ * visited node to its grandparent.
+ * <p>
+ *
+ * Elements must not be <code>null</code>. {@link #getSubSetMap()} is weakly
+ * consistent while other threads change the sets.
+ *
+ * @param <E>
+ *            type of set elements
+ */
+public class ConcurrentDisjointSet<E> {
+	static final class Node<E> {
+		@SuppressWarnings("rawtypes")
+		static final AtomicReferenceFieldUpdater<Node, Node> PARENT = AtomicReferenceFieldUpdater
+				.newUpdater(Node.class, Node.class, "parent");
+
+		final E element;
+		final long id;
+		volatile Node<E> parent = null;
+
+		Node(E element, long id) {
+			this.element = element;
+			this.id = id;
+		}
+
+		boolean link(Node<E> expected, Node<E> parent) {
+			return PARENT.compareAndSet(this, expected, parent);
+		}
+	}
+
+	private final ConcurrentMap<E, Node<E>> nodes = new ConcurrentHashMap<E, Node<E>>();
+	private final AtomicLong ids = new AtomicLong();
+	private final AtomicInteger size = new AtomicInteger();
+
+	public E union(E a, E b) {
+		Node<E> aNode = nodes.get(a);
+		Node<E> bNode = nodes.get(b);
+
+		if (aNode == null) {
+			return bNode != null ? findRootNode(bNode).element : null;
+		} else if (bNode == null) {
+			return findRootNode(aNode).element;
+		}
+
+		while (true) {
+			aNode = findRootNode(aNode);
+			bNode = findRootNode(bNode);
+			if (aNode == bNode) {
+				return aNode.element;
+			}
+			if (aNode.id < bNode.id) {
+				Node<E> tmp = aNode;
+				aNode = bNode;
+				bNode = tmp;
+			}
+			// fails if aNode was linked by another thread in the meantime
+			if (aNode.link(null, bNode)) {
+				size.decrementAndGet();
+				return bNode.element;
+			}
+		}
+	}
+
+	public E find(E element) {
+		Node<E> node = nodes.get(element);
+		return node != null ? findRootNode(node).element : null;
+	}
+
+	public boolean contains(E element) {
+		return nodes.containsKey(element);
+	}
+
+	/**
+	 * Returns <code>true</code> if both elements are contained in the same
+	 * set.
+	 */
+	public boolean sameSet(E a, E b) {
+		Node<E> aNode = nodes.get(a);
+		Node<E> bNode = nodes.get(b);
+		if (aNode == null || bNode == null) {
+			return false;
+		}
+		while (true) {
+			aNode = findRootNode(aNode);
+			bNode = findRootNode(bNode);
+			if (aNode == bNode) {
+				return true;
+			}
+			// aNode may have been linked after it was found
+			if (aNode.parent == null) {
+				return false;
+			}
+		}
+	}
+
+	private Node<E> findRootNode(Node<E> node) {
+		while (true) {
+			Node<E> parent = node.parent;
+			// representative found
+			if (parent == null) {
+				return node;
+			}
+			Node<E> grandparent = parent.parent;
+			// path splitting
+			if (grandparent != null) {
+				node.link(parent, grandparent);
+			}
+			node = parent;
+		}
+	}
+
+	/**
+	 * Adds an element as singleton set and returns <code>true</code> if it
+	 * was not yet contained.
+	 */
+	public boolean add(E element) {
+		if (nodes.containsKey(element)) {
+			return false;
+		}
+		if (nodes.putIfAbsent(element,
+				new Node<E>(element, ids.getAndIncrement())) == null) {
+			size.incrementAndGet();
+			return true;
+		}
+		return false;
+	}
+
+	public void addAll(Collection<? extends E> elements) {
+		for (E element : elements) {
+			add(element);
+		}
+	}
+
+	/**
+	 * Returns the number of sets.
+	 */
+	public int size() {
+		return size.get();
+	}
+
+	public Map<E, Set<E>> getSubSetMap() {
+		Map<E, Set<E>> sets = new HashMap<E, Set<E>>();
+
+		for (Node<E> node : nodes.values()) {
+			Node<E> root = findRootNode(node);
+			Set<E> set = sets.get(root.element);
+			if (set == null) {
+				set = new HashSet<E>();
+				sets.put(root.element, set);
+			}
+			set.add(node.element);
+		}
+
+		return sets;
+	}
+
+	public Collection<Set<E>> getSubSets() {
+		return getSubSetMap().values();
+	}
+}
@@ -0,0 +1,104 @@
+package net.enilink.commons.ds.misc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Lock-free union-find over the elements <code>0</code> to
+ * <code>capacity - 1</code>, which may be used by several threads at once.
+ * <p>
+ *
+ * Sets are linked by index: the root with the larger element is linked below
+ * the other one by a single compare-and-set, hence the root of each set is
+ * always its smallest element and concurrent links can not form cycles.
+ * {@link #find(int)} splits the path to the root by pointing each visited
+ * element to its grandparent.
+ */
+public class ConcurrentIntDisjointSet {
+	private final AtomicIntegerArray parents;
+	private final AtomicInteger size;
+
+	/**
+	 * Creates a singleton set for each element.
+	 */
+	public ConcurrentIntDisjointSet(int capacity) {
+		parents = new AtomicIntegerArray(capacity);
+		for (int i = 0; i < capacity; i++) {
+			parents.set(i, i);
+		}
+		size = new AtomicInteger(capacity);
+	}
+
+	/**
+	 * Returns the number of elements.
+	 */
+	public int capacity() {
+		return parents.length();
+	}
+
+	/**
+	 * Returns the root of the set that contains <code>element</code>, which
+	 * is its smallest element.
+	 */
+	public int find(int element) {
+		while (true) {
+			int parent = parents.get(element);
+			if (parent == element) {
+				return element;
+			}
+			int grandparent = parents.get(parent);
+			if (grandparent != parent) {
+				parents.compareAndSet(element, parent, grandparent);
+			}
+			element = parent;
+		}
+	}
+
+	/**
+	 * Merges the sets of both elements and returns the root of the merged
+	 * set.
+	 */
+	public int union(int a, int b) {
+		while (true) {
+			a = find(a);
+			b = find(b);
+			if (a == b) {
+				return a;
+			}
+			if (a < b) {
+				int tmp = a;
+				a = b;
+				b = tmp;
+			}
+			// fails if a was linked by another thread in the meantime
+			if (parents.compareAndSet(a, a, b)) {
+				size.decrementAndGet();
+				return b;
+			}
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if both elements are in the same set.
+	 */
+	public boolean sameSet(int a, int b) {
+		while (true) {
+			a = find(a);
+			b = find(b);
+			if (a == b) {
+				return true;
+			}
+			// a may have been linked after it was found
+			if (parents.get(a) == a) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of sets.
+	 */
+	public int size() {
+		return size.get();
+	}
+}
@@ -1,13 +1,22 @@
 package net.enilink.commons.ds.misc;
 
+import java.util.AbstractCollection;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
  * Simple fast union-find tree data structure
+ * <p>
+ * 
+ * The elements of each set are additionally linked into a circular list,
+ * which allows to enumerate the members of a single set without looking at
+ * the other elements.
  * 
  * @author Ken Wenzel
  * 
@@ -18,6 +27,8 @@ public class DisjointSet<E> {
 	class Node {
 		E element;
 		Node parent = null;
+		// next member of the same set
+		Node next = this;
 		int count = 1;
 
 		Node(E element) {
@@ -42,6 +53,11 @@ public class DisjointSet<E> {
 
 		size--;
 
+		// splice the member lists
+		Node next = aNode.next;
+		aNode.next = bNode.next;
+		bNode.next = next;
+
 		if (aNode.count >= bNode.count) {
 			bNode.parent = aNode;
 			aNode.count += bNode.count;
@@ -103,23 +119,50 @@ public class DisjointSet<E> {
 
 	public void clear() {
 		nodes.clear();
+		size = 0;
 	}
 
+	/**
+	 * Returns the number of sets.
+	 */
 	public int size() {
 		return size;
 	}
 
+	/**
+	 * Returns the number of elements in the set that contains
+	 * <code>element</code> or <code>0</code> if it is not contained.
+	 */
+	public int sizeOf(E element) {
+		Node node = findRoot(element);
+		return node != null ? node.count : 0;
+	}
+
+	/**
+	 * Returns a view of the members of the set that contains
+	 * <code>element</code> or an empty collection if it is not contained.
+	 */
+	public Collection<E> membersOf(E element) {
+		Node node = nodes.get(element);
+		if (node == null) {
+			return Collections.emptySet();
+		}
+		return new Members(node);
+	}
+
 	public Map<E, Set<E>> getSubSetMap() {
 		Map<E, Set<E>> sets = new HashMap<E, Set<E>>();
 
 		for (Node node : nodes.values()) {
-			Node root = findRootNode(node);
-			Set<E> set = sets.get(root.element);
-			if (set == null) {
-				set = new HashSet<E>();
-				sets.put(root.element, set);
+			if (node.parent == null) {
+				Set<E> set = new HashSet<E>();
+				Node member = node;
+				do {
+					set.add(member.element);
+					member = member.next;
+				} while (member != node);
+				sets.put(node.element, set);
 			}
-			set.add(node.element);
 		}
 
 		return sets;
@@ -128,4 +171,50 @@ public class DisjointSet<E> {
 	public Collection<Set<E>> getSubSets() {
 		return getSubSetMap().values();
 	}
+
+	/*
+	 * Live view of the members of a set, starting at one of its nodes.
+	 */
+	private class Members extends AbstractCollection<E> {
+		final Node start;
+
+		Members(Node start) {
+			this.start = start;
+		}
+
+		@Override
+		public Iterator<E> iterator() {
+			return new Iterator<E>() {
+				Node next = start;
+
+				public boolean hasNext() {
+					return next != null;
+				}
+
+				public E next() {
+					if (next == null) {
+						throw new NoSuchElementException();
+					}
+					E element = next.element;
+					next = next.next == start ? null : next.next;
+					return element;
+				}
+
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			Node node = nodes.get(o);
+			return node != null && findRootNode(node) == findRootNode(start);
+		}
+
+		@Override
+		public int size() {
+			return findRootNode(start).count;
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,129 @@
+package net.enilink.commons.ds.misc;
+
+/**
+ * Union-find over the elements <code>0</code> to <code>capacity - 1</code>
+ * backed by primitive arrays.
+ * <p>
+ *
+ * Sets are linked by rank and {@link #find(int)} halves the path to the root
+ * iteratively by pointing every other element to its grandparent, hence long
+ * chains do not need any stack.
+ */
+public class IntDisjointSet {
+	private final int[] parents;
+	// the rank of a root is at most log2(capacity)
+	private final byte[] ranks;
+	private int size;
+
+	/**
+	 * Creates a singleton set for each element.
+	 */
+	public IntDisjointSet(int capacity) {
+		parents = new int[capacity];
+		ranks = new byte[capacity];
+		clear();
+	}
+
+	/**
+	 * Returns the number of elements.
+	 */
+	public int capacity() {
+		return parents.length;
+	}
+
+	/**
+	 * Returns the root of the set that contains <code>element</code>.
+	 */
+	public int find(int element) {
+		int[] parents = this.parents;
+		while (parents[element] != element) {
+			// path halving
+			parents[element] = parents[parents[element]];
+			element = parents[element];
+		}
+		return element;
+	}
+
+	/**
+	 * Merges the sets of both elements and returns the root of the merged
+	 * set.
+	 */
+	public int union(int a, int b) {
+		a = find(a);
+		b = find(b);
+		if (a == b) {
+			return a;
+		}
+
+		size--;
+
+		if (ranks[a] < ranks[b]) {
+			parents[a] = b;
+			return b;
+		}
+		parents[b] = a;
+		if (ranks[a] == ranks[b]) {
+			ranks[a]++;
+		}
+		return a;
+	}
+
+	/**
+	 * Merges the sets of the pairs <code>(as[i], bs[i])</code>, e.g. the
+	 * start and end nodes of an edge list.
+	 */
+	public void unionAll(int[] as, int[] bs) {
+		if (as.length != bs.length) {
+			throw new IllegalArgumentException("Arrays differ in length: "
+					+ as.length + " != " + bs.length);
+		}
+		for (int i = 0; i < as.length; i++) {
+			union(as[i], bs[i]);
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if both elements are in the same set.
+	 */
+	public boolean sameSet(int a, int b) {
+		return find(a) == find(b);
+	}
+
+	/**
+	 * Splits all sets into singletons again.
+	 */
+	public void clear() {
+		for (int i = 0; i < parents.length; i++) {
+			parents[i] = i;
+			ranks[i] = 0;
+		}
+		size = parents.length;
+	}
+
+	/**
+	 * Returns the number of sets.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the set of each element as label from <code>0</code> to
+	 * <code>size() - 1</code>. The sets are numbered in the order of their
+	 * smallest elements.
+	 */
+	public int[] getSubSets() {
+		int[] labels = new int[parents.length];
+		// maps roots to labels, shifted by one to distinguish unlabeled roots
+		int[] rootLabels = new int[parents.length];
+		int count = 0;
+		for (int i = 0; i < parents.length; i++) {
+			int root = find(i);
+			if (rootLabels[root] == 0) {
+				rootLabels[root] = ++count;
+			}
+			labels[i] = rootLabels[root] - 1;
+		}
+		return labels;
+	}
+}
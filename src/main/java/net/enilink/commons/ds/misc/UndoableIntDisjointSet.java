@@ -0,0 +1,126 @@
+package net.enilink.commons.ds.misc;
+
+import java.util.Arrays;
+
+/**
+ * Union-find over the elements <code>0</code> to <code>capacity - 1</code>
+ * whose unions can be undone.
+ * <p>
+ *
+ * Sets are linked by rank without path compression, hence each union changes
+ * only the parent of one root and possibly the rank of the other one.
+ * These changes are recorded on a trail. {@link #checkpoint()} returns the
+ * current position on the trail and {@link #rollback(int)} reverts all later
+ * unions in time proportional to their number, which is suited to
+ * backtracking search. {@link #find(int)} takes logarithmic time.
+ */
+public class UndoableIntDisjointSet {
+	private final int[] parents;
+	private final byte[] ranks;
+	private int size;
+
+	// linked root shifted left by one, the lowest bit is set if the rank of
+	// its new parent was increased
+	private int[] trail = new int[16];
+	private int trailSize;
+
+	/**
+	 * Creates a singleton set for each element.
+	 */
+	public UndoableIntDisjointSet(int capacity) {
+		parents = new int[capacity];
+		ranks = new byte[capacity];
+		for (int i = 0; i < capacity; i++) {
+			parents[i] = i;
+		}
+		size = capacity;
+	}
+
+	/**
+	 * Returns the number of elements.
+	 */
+	public int capacity() {
+		return parents.length;
+	}
+
+	/**
+	 * Returns the root of the set that contains <code>element</code>.
+	 */
+	public int find(int element) {
+		while (parents[element] != element) {
+			element = parents[element];
+		}
+		return element;
+	}
+
+	/**
+	 * Merges the sets of both elements and returns the root of the merged
+	 * set.
+	 */
+	public int union(int a, int b) {
+		a = find(a);
+		b = find(b);
+		if (a == b) {
+			return a;
+		}
+		if (ranks[a] < ranks[b]) {
+			int tmp = a;
+			a = b;
+			b = tmp;
+		}
+		boolean promoted = ranks[a] == ranks[b];
+		parents[b] = a;
+		if (promoted) {
+			ranks[a]++;
+		}
+		if (trailSize == trail.length) {
+			trail = Arrays.copyOf(trail, trailSize * 2);
+		}
+		trail[trailSize++] = b << 1 | (promoted ? 1 : 0);
+		size--;
+		return a;
+	}
+
+	/**
+	 * Returns <code>true</code> if both elements are in the same set.
+	 */
+	public boolean sameSet(int a, int b) {
+		return find(a) == find(b);
+	}
+
+	/**
+	 * Returns the number of sets.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns a checkpoint that {@link #rollback(int)} can restore.
+	 */
+	public int checkpoint() {
+		return trailSize;
+	}
+
+	/**
+	 * Reverts all unions since <code>checkpoint</code> was taken.
+	 *
+	 * @exception IllegalArgumentException
+	 *                if the checkpoint was already rolled back
+	 */
+	public void rollback(int checkpoint) {
+		if (checkpoint < 0 || checkpoint > trailSize) {
+			throw new IllegalArgumentException("Invalid checkpoint: "
+					+ checkpoint + ", current: " + trailSize);
+		}
+		while (trailSize > checkpoint) {
+			int change = trail[--trailSize];
+			int root = change >>> 1;
+			if ((change & 1) != 0) {
+				ranks[parents[root]]--;
+			}
+			parents[root] = root;
+			size++;
+		}
+	}
+}
@@ -11,25 +11,38 @@ package net.enilink.commons.ds.trie;
  *  Helsinki University of Technology
  */
 
+import java.nio.charset.Charset;
+
 /**
  * A semi-infinite string of bytes. Zero is used as a unique endmarker and the
  * strings are conceptually padded with zeroes.
  */
 final public class ByteString implements SiString {
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
 	int[] data; // The trailing unused bits must be zero.
 	int length; // Number of 8-bit characters in string
 
 	ByteString(String str) {
-		str = removeNull(str);
-		length = str.length();
+		this(removeNull(str).getBytes(UTF8));
+	}
+
+	/*
+	 * Create a string from raw bytes. The bytes must not contain the endmarker
+	 * zero.
+	 */
+	ByteString(byte[] bytes) {
+		this(bytes, 0, bytes.length);
+	}
 
-		byte[] byteArray = str.getBytes();
+	ByteString(byte[] bytes, int offset, int length) {
+		this.length = length;
 		if (length > 0)
 			data = new int[1 + ((length - 1) >> 2)];
 		else
 			data = new int[0];
 		for (int i = 0; i < length; i++)
-			putByte(byteArray[i], i);
+			putByte(bytes[offset + i], i);
 	}
 
 	public boolean equals(SiString s) {
@@ -136,6 +149,16 @@ final public class ByteString implements SiString {
 					| getWord(data, word + 1) >>> (64 - pos - bits);
 	}
 
+	/*
+	 * Return the bytes of this string.
+	 */
+	byte[] toBytes() {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++)
+			bytes[i] = (byte) getByte(data, i);
+		return bytes;
+	}
+
 	public String toString() {
 		StringBuffer buf = new StringBuffer("\"");
 		/*
@@ -151,7 +174,7 @@ final public class ByteString implements SiString {
 	/*
 	 * Remove all null characters from string.
 	 */
-	private final String removeNull(String str) {
+	private static String removeNull(String str) {
 		StringBuffer strBuf = new StringBuffer();
 		for (int i = 0; i < str.length(); i++) {
 			char ch = str.charAt(i);
@@ -165,7 +188,7 @@ final public class ByteString implements SiString {
 	 * Put the byte b into position i in data.
 	 */
 	private final void putByte(byte b, int i) {
-		data[i >> 2] |= b << ((3 - (i & 03)) << 3);
+		data[i >> 2] |= (b & 0377) << ((3 - (i & 03)) << 3);
 	}
 
 	/*
@@ -0,0 +1,94 @@
+package net.enilink.commons.ds.trie;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Codecs for the key types of a trie and for common value types.
+ */
+public final class Codecs {
+	private Codecs() {
+	}
+
+	public static final ICodec<SiString> BYTE_STRING = new ICodec<SiString>() {
+		public void write(SiString key, DataOutput out) throws IOException {
+			byte[] bytes = ((ByteString) key).toBytes();
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+
+		public SiString read(DataInput in) throws IOException {
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			return new ByteString(bytes);
+		}
+	};
+
+	public static final ICodec<SiString> INTERLEAVED_2D_POINT = new ICodec<SiString>() {
+		public void write(SiString key, DataOutput out) throws IOException {
+			out.writeLong(((Interleaved2DPoint) key).data);
+		}
+
+		public SiString read(DataInput in) throws IOException {
+			return new Interleaved2DPoint(in.readLong());
+		}
+	};
+
+	public static final ICodec<SiString> HILBERT_POINT = new ICodec<SiString>() {
+		public void write(SiString key, DataOutput out) throws IOException {
+			out.writeLong(((HilbertPoint) key).data);
+		}
+
+		public SiString read(DataInput in) throws IOException {
+			return new HilbertPoint(in.readLong());
+		}
+	};
+
+	public static final ICodec<SiString> BIT_STRING_31 = new ICodec<SiString>() {
+		public void write(SiString key, DataOutput out) throws IOException {
+			BitString31 str = (BitString31) key;
+			out.writeInt(str.data);
+			out.writeByte(str.length);
+		}
+
+		public SiString read(DataInput in) throws IOException {
+			int data = in.readInt();
+			return new BitString31(data, in.readUnsignedByte());
+		}
+	};
+
+	public static final ICodec<String> STRING = new ICodec<String>() {
+		public void write(String value, DataOutput out) throws IOException {
+			byte[] bytes = value.getBytes(ByteString.UTF8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+
+		public String read(DataInput in) throws IOException {
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			return new String(bytes, ByteString.UTF8);
+		}
+	};
+
+	public static final ICodec<Integer> INTEGER = new ICodec<Integer>() {
+		public void write(Integer value, DataOutput out) throws IOException {
+			out.writeInt(value);
+		}
+
+		public Integer read(DataInput in) throws IOException {
+			return in.readInt();
+		}
+	};
+
+	public static final ICodec<Long> LONG = new ICodec<Long>() {
+		public void write(Long value, DataOutput out) throws IOException {
+			out.writeLong(value);
+		}
+
+		public Long read(DataInput in) throws IOException {
+			return in.readLong();
+		}
+	};
+}
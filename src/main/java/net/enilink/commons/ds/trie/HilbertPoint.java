@@ -0,0 +1,315 @@
+package net.enilink.commons.ds.trie;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A semi-infinite binary string consisting of the 64 bit Hilbert curve index
+ * of two 32 bit integers. The strings are conceptually padded with zeroes.
+ * <p>
+ *
+ * In contrast to the Z-order of {@link Interleaved2DPoint} consecutive keys
+ * are always neighbours in space, hence a rectangle is covered by fewer key
+ * ranges and points that are close to each other share longer prefixes.
+ * Coordinates are treated as unsigned integers.
+ */
+final public class HilbertPoint implements SiString {
+	long data; // The Hilbert index
+
+	/*
+	 * The curve is computed by a state machine with four states. A state is
+	 * the transformation applied to the lower levels of the coordinates: bit 0
+	 * swaps x and y, bit 1 inverts both coordinates.
+	 *
+	 * ENCODE maps (state, 4 bits of x, 4 bits of y) to 8 bits of the index and
+	 * the following state, DECODE is the inverse. The entries are of the form
+	 * bits << 2 | state.
+	 */
+	static final int[] ENCODE = new int[4 << 8];
+	static final int[] DECODE = new int[4 << 8];
+
+	/*
+	 * The quadrant and the following state for each state and digit, used to
+	 * decompose rectangles into curve ranges.
+	 */
+	static final QuadtreeCurve CURVE;
+
+	static {
+		int[] quadrant = new int[16];
+		int[] next = new int[16];
+		for (int state = 0; state < 4; state++) {
+			for (int x = 0; x < 2; x++) {
+				for (int y = 0; y < 2; y++) {
+					int r = encodeBit(state, x, y);
+					quadrant[state << 2 | r >> 2] = x << 1 | y;
+					next[state << 2 | r >> 2] = r & 3;
+				}
+			}
+		}
+		CURVE = new QuadtreeCurve(quadrant, next);
+
+		for (int state = 0; state < 4; state++) {
+			for (int xy = 0; xy < 256; xy++) {
+				int s = state, digits = 0;
+				for (int i = 3; i >= 0; i--) {
+					int r = encodeBit(s, xy >>> 4 + i & 1, xy >>> i & 1);
+					digits = digits << 2 | r >> 2;
+					s = r & 3;
+				}
+				ENCODE[state << 8 | xy] = digits << 2 | s;
+				DECODE[state << 8 | digits] = xy << 2 | s;
+			}
+		}
+	}
+
+	/*
+	 * One step of the state machine, returns digit << 2 | nextState.
+	 */
+	private static int encodeBit(int state, int x, int y) {
+		int invert = state >> 1;
+		int rx = x ^ invert, ry = y ^ invert;
+		if ((state & 1) != 0) {
+			int t = rx;
+			rx = ry;
+			ry = t;
+		}
+		int digit = (3 * rx) ^ ry;
+		if (ry == 0) {
+			state ^= 1;
+			if (rx == 1) {
+				state ^= 2;
+			}
+		}
+		return digit << 2 | state;
+	}
+
+	public HilbertPoint(int x, int y) {
+		data = encode(x, y);
+	}
+
+	HilbertPoint(long data) {
+		this.data = data;
+	}
+
+	/**
+	 * Returns the Hilbert index of the point <code>(x, y)</code>.
+	 */
+	public static long encode(int x, int y) {
+		long index = 0;
+		int state = 0;
+		for (int shift = 28; shift >= 0; shift -= 4) {
+			int r = ENCODE[state << 8 | (x >>> shift & 0xF) << 4
+					| (y >>> shift & 0xF)];
+			index = index << 8 | r >>> 2;
+			state = r & 3;
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the x coordinate of the point with the given Hilbert index.
+	 */
+	public static int decodeX(long index) {
+		return (int) (decode(index) >>> 32);
+	}
+
+	/**
+	 * Returns the y coordinate of the point with the given Hilbert index.
+	 */
+	public static int decodeY(long index) {
+		return (int) decode(index);
+	}
+
+	/*
+	 * Returns x << 32 | y.
+	 */
+	private static long decode(long index) {
+		int x = 0, y = 0;
+		int state = 0;
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			int r = DECODE[state << 8 | (int) (index >>> shift) & 0xFF];
+			x = x << 4 | r >>> 6;
+			y = y << 4 | r >>> 2 & 0xF;
+			state = r & 3;
+		}
+		return (long) x << 32 | y & 0xFFFFFFFFL;
+	}
+
+	/**
+	 * Returns the Hilbert index of this point.
+	 */
+	public long getIndex() {
+		return data;
+	}
+
+	public int getX() {
+		return decodeX(data);
+	}
+
+	public int getY() {
+		return decodeY(data);
+	}
+
+	/**
+	 * Returns the Hilbert index ranges <code>{lo, hi}</code> (inclusive,
+	 * unsigned) that cover the rectangle <code>[x0, x1] x [y0, y1]</code>.
+	 * The rectangle is refined up to <code>maxLevel</code> (at most 32), if
+	 * <code>maxLevel</code> is less than 32 the ranges may contain points
+	 * outside of the rectangle. The ranges are sorted and adjacent ranges are
+	 * merged.
+	 */
+	public static List<long[]> getRanges(int x0, int y0, int x1, int y1,
+			int maxLevel) {
+		return CURVE.ranges(x0, y0, x1, y1, maxLevel);
+	}
+
+	/**
+	 * Collects the values of all points within the rectangle <code>[x0, x1] x
+	 * [y0, y1]</code> from a trie with {@link HilbertPoint} keys. The
+	 * rectangle is refined up to <code>maxLevel</code> (at most 32), if
+	 * <code>maxLevel</code> is less than 32 the result may contain points
+	 * outside of the rectangle.
+	 */
+	public static <V> void query(final ITrie<V> trie, int x0, int y0, int x1,
+			int y1, int maxLevel, final Collection<? super V> result) {
+		CURVE.decompose(x0, y0, x1, y1, maxLevel,
+				new QuadtreeCurve.CellVisitor() {
+					public void cell(long prefix, int level, boolean partial) {
+						trie.collectPrefix(new HilbertPoint(QuadtreeCurve
+								.prefix(prefix, level)), 2 * level, result);
+					}
+				});
+	}
+
+	public boolean equals(SiString s) {
+		HilbertPoint p = (HilbertPoint) s;
+		return p.data == data;
+	}
+
+	// Compares the indexes as unsigned integers.
+	public int compareTo(SiString s) {
+		HilbertPoint p = (HilbertPoint) s;
+		long a = data ^ Long.MIN_VALUE, b = p.data ^ Long.MIN_VALUE;
+		return a < b ? -1 : (a > b ? 1 : 0);
+	}
+
+	/**
+	 * Try to match the part of both strings that start at <code>offset</code>
+	 * and has length <code>bits</code>, where
+	 * <code>offset/bits> and <code>bits</code> are nonnegative.
+	 */
+	public boolean subEquals(int offset, int bits, SiString s) {
+		if (bits == 0 || offset >= 64)
+			return true;
+		HilbertPoint p = (HilbertPoint) s;
+		bits = bits > 64 - offset ? 64 - offset : bits;
+		return (p.data ^ data) << offset >>> (64 - bits) == 0;
+	}
+
+	/**
+	 * Find the first mismatch starting at <code>offset</code>. The strings are
+	 * supposed to be different!
+	 */
+	public int misMatch(int offset, SiString s) {
+		HilbertPoint p = (HilbertPoint) s;
+		long diff = (p.data ^ data) << offset;
+		return offset + Long.numberOfLeadingZeros(diff);
+	}
+
+	/**
+	 * 1 <= <code>bits</code> <= 32
+	 */
+	public int extractBits(int offset, int bits) {
+		if (offset >= 64)
+			return 0;
+		else
+			return (int) (data << offset >>> (64 - bits));
+	}
+
+	public String toString() {
+		return "(" + (getX() & 0xFFFFFFFFL) + ", " + (getY() & 0xFFFFFFFFL)
+				+ ")";
+	}
+
+	public int length() {
+		return 64;
+	}
+
+	/**
+	 * Compares the Hilbert curve with the Z-order of {@link Interleaved2DPoint}
+	 * on clustered points: the number of key ranges (seeks) that are required
+	 * to cover query rectangles, the time of the rectangle queries and the
+	 * length of the common key prefix of spatially neighbouring points.
+	 */
+	public static void main(String[] args) {
+		int points = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		int queries = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		Random random = new Random(42);
+
+		int clusters = 50;
+		int[] cx = new int[clusters], cy = new int[clusters];
+		for (int i = 0; i < clusters; i++) {
+			cx[i] = (1 << 20) + random.nextInt(1 << 22);
+			cy[i] = (1 << 20) + random.nextInt(1 << 22);
+		}
+		Trie<int[]> hilbert = new Trie<int[]>();
+		Trie<int[]> morton = new Trie<int[]>();
+		long hilbertPrefix = 0, mortonPrefix = 0;
+		for (int i = 0; i < points; i++) {
+			int c = random.nextInt(clusters);
+			int x = cx[c] + (int) (random.nextGaussian() * 20000);
+			int y = cy[c] + (int) (random.nextGaussian() * 20000);
+			int[] point = { x, y };
+			hilbert.put(new HilbertPoint(x, y), point);
+			morton.put(new Interleaved2DPoint(x, y), point);
+			hilbertPrefix += Long.numberOfLeadingZeros(encode(x, y)
+					^ encode(x + 1, y));
+			mortonPrefix += Long.numberOfLeadingZeros(new Interleaved2DPoint(
+					x, y).data ^ new Interleaved2DPoint(x + 1, y).data);
+		}
+
+		int[][] rects = new int[queries][];
+		for (int i = 0; i < queries; i++) {
+			int c = random.nextInt(clusters);
+			int x = cx[c] + (int) (random.nextGaussian() * 20000);
+			int y = cy[c] + (int) (random.nextGaussian() * 20000);
+			int w = 1 + random.nextInt(5000), h = 1 + random.nextInt(5000);
+			rects[i] = new int[] { x, y, x + w, y + h };
+		}
+
+		long hilbertRanges = 0, mortonRanges = 0;
+		for (int[] r : rects) {
+			hilbertRanges += getRanges(r[0], r[1], r[2], r[3], 32).size();
+			mortonRanges += QuadtreeCurve.MORTON.ranges(r[0], r[1], r[2],
+					r[3], 32).size();
+		}
+
+		List<int[]> result = new ArrayList<int[]>();
+		long found = 0, start = System.nanoTime();
+		for (int[] r : rects) {
+			result.clear();
+			query(hilbert, r[0], r[1], r[2], r[3], 32, result);
+			found += result.size();
+		}
+		long hilbertTime = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int[] r : rects) {
+			result.clear();
+			Interleaved2DPoint.query(morton, r[0], r[1], r[2], r[3], 32,
+					result);
+			found -= result.size();
+		}
+		long mortonTime = System.nanoTime() - start;
+
+		System.out.println("Points: " + points + ", queries: " + queries
+				+ (found != 0 ? " (RESULTS DIFFER)" : ""));
+		System.out.println("Ranges per query   Hilbert: " + (float) hilbertRanges
+				/ queries + ", Z-order: " + (float) mortonRanges / queries);
+		System.out.println("Query time (ms)    Hilbert: " + hilbertTime
+				/ 1000000 + ", Z-order: " + mortonTime / 1000000);
+		System.out.println("Neighbour prefix   Hilbert: " + (float) hilbertPrefix
+				/ points + ", Z-order: " + (float) mortonPrefix / points);
+	}
+}
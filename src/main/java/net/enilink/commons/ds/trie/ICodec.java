@@ -0,0 +1,17 @@
+package net.enilink.commons.ds.trie;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Converts keys or values of a trie to and from their binary representation.
+ * 
+ * @param <T>
+ *            type of the converted objects
+ */
+public interface ICodec<T> {
+	void write(T object, DataOutput out) throws IOException;
+
+	T read(DataInput in) throws IOException;
+}
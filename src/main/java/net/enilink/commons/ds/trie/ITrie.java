@@ -1,5 +1,7 @@
 package net.enilink.commons.ds.trie;
 
+import java.util.Collection;
+
 public interface ITrie<V> {
 
 	/**
@@ -32,6 +34,14 @@ public interface ITrie<V> {
 
 	public abstract V findPrefix(SiString key);
 
+	/**
+	 * Collects the values of all keys whose first <code>bits</code> bits are
+	 * equal to the first <code>bits</code> bits of <code>prefix</code>. The
+	 * values are added in the order of their keys.
+	 */
+	public abstract void collectPrefix(SiString prefix, int bits,
+			Collection<? super V> result);
+
 	/*
 	 * Returns <code>true</code> if this trie contains no mappings.
 	 */
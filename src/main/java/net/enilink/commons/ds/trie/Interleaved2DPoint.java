@@ -11,6 +11,9 @@ package net.enilink.commons.ds.trie;
  *  Helsinki University of Technology
  */
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * A semi-infinite binary string consisting of two interleaved 32 bit integers.
  * The strings are conceptually padded with zeroes.
@@ -40,7 +43,7 @@ final public class Interleaved2DPoint implements SiString {
 		// UNMIX[((int) MIX[i]) & 0xFFFFD] = i;
 	}
 
-	Interleaved2DPoint(int x, int y) {
+	public Interleaved2DPoint(int x, int y) {
 		// this.x = x;
 		// this.y = y;
 		data = (((long) MIX[x >>> 24 << 8 | y >>> 24]) & 0xFFFFL) << 48;
@@ -49,6 +52,64 @@ final public class Interleaved2DPoint implements SiString {
 		data |= ((long) MIX[x << 24 >>> 16 | y << 24 >>> 24]) & 0xFFFFL;
 	}
 
+	Interleaved2DPoint(long data) {
+		this.data = data;
+	}
+
+	public int getX() {
+		return compact(data >>> 1);
+	}
+
+	public int getY() {
+		return compact(data);
+	}
+
+	/*
+	 * Collect the bits at the even positions of n into an integer. This is the
+	 * inverse of MIX.
+	 */
+	static int compact(long n) {
+		n &= 0x5555555555555555L;
+		n = (n | n >>> 1) & 0x3333333333333333L;
+		n = (n | n >>> 2) & 0x0F0F0F0F0F0F0F0FL;
+		n = (n | n >>> 4) & 0x00FF00FF00FF00FFL;
+		n = (n | n >>> 8) & 0x0000FFFF0000FFFFL;
+		n = (n | n >>> 16) & 0x00000000FFFFFFFFL;
+		return (int) n;
+	}
+
+	/**
+	 * Returns the Z-order index ranges <code>{lo, hi}</code> (inclusive,
+	 * unsigned) that cover the rectangle <code>[x0, x1] x [y0, y1]</code>.
+	 * The rectangle is refined up to <code>maxLevel</code> (at most 32), if
+	 * <code>maxLevel</code> is less than 32 the ranges may contain points
+	 * outside of the rectangle. The ranges are sorted and adjacent ranges are
+	 * merged.
+	 */
+	public static List<long[]> getRanges(int x0, int y0, int x1, int y1,
+			int maxLevel) {
+		return QuadtreeCurve.MORTON.ranges(x0, y0, x1, y1, maxLevel);
+	}
+
+	/**
+	 * Collects the values of all points within the rectangle <code>[x0, x1] x
+	 * [y0, y1]</code> from a trie with {@link Interleaved2DPoint} keys. The
+	 * rectangle is refined up to <code>maxLevel</code> (at most 32), if
+	 * <code>maxLevel</code> is less than 32 the result may contain points
+	 * outside of the rectangle.
+	 */
+	public static <V> void query(final ITrie<V> trie, int x0, int y0, int x1,
+			int y1, int maxLevel, final Collection<? super V> result) {
+		QuadtreeCurve.MORTON.decompose(x0, y0, x1, y1, maxLevel,
+				new QuadtreeCurve.CellVisitor() {
+					public void cell(long prefix, int level, boolean partial) {
+						trie.collectPrefix(new Interleaved2DPoint(
+								QuadtreeCurve.prefix(prefix, level)),
+								2 * level, result);
+					}
+				});
+	}
+
 	public boolean equals(SiString s) {
 		Interleaved2DPoint p = (Interleaved2DPoint) s;
 		return p.data == data;
@@ -95,10 +95,11 @@ final class InternalNode<V> extends Node<V> {
 	}
 
 	/*
-	 * If appropriate resize the node.
+	 * If appropriate resize the node. Inflations and halvings are counted in
+	 * stats.
 	 */
 	@SuppressWarnings("unchecked")
-	Node<V> resize() {
+	Node<V> resize(TrieCounters stats) {
 		// No children
 		if (emptyChildren == child.length)
 			return null;
@@ -116,14 +117,14 @@ final class InternalNode<V> extends Node<V> {
 		while (fullChildren > 0
 				&& 50 * (fullChildren + child.length - emptyChildren) >= inflateThreshold
 						* child.length)
-			inflate();
+			inflate(stats);
 
 		// Halve as long as the numer of empty children in this
 		// node is above threshold.
 		while (bits > 1
 				&& 100 * (child.length - emptyChildren) < halveThreshold
 						* child.length)
-			halve();
+			halve(stats);
 
 		// Only one child remains.
 		if (emptyChildren == child.length - 1)
@@ -174,7 +175,8 @@ final class InternalNode<V> extends Node<V> {
 	}
 
 	@SuppressWarnings("unchecked")
-	private void inflate() {
+	private void inflate(TrieCounters stats) {
+		stats.inflations++;
 		Node[] oldChild = child;
 		bits++;
 		child = new Node[1 << bits];
@@ -215,14 +217,15 @@ final class InternalNode<V> extends Node<V> {
 					right.putChild(j, inode.child[j + size]);
 				left.refreshKey();
 				right.refreshKey();
-				putChild(2 * i, left.resize());
-				putChild(2 * i + 1, right.resize());
+				putChild(2 * i, left.resize(stats));
+				putChild(2 * i + 1, right.resize(stats));
 			}
 		}
 	}
 
 	@SuppressWarnings("unchecked")
-	private void halve() {
+	private void halve(TrieCounters stats) {
+		stats.halvings++;
 		Node<?>[] oldChild = child;
 		bits--;
 		child = new Node[1 << bits];
@@ -246,7 +249,7 @@ final class InternalNode<V> extends Node<V> {
 						+ bits, 1);
 				newBinNode.putChild(0, left);
 				newBinNode.putChild(1, right);
-				putChild(i / 2, newBinNode.resize());
+				putChild(i / 2, newBinNode.resize(stats));
 			}
 		}
 	}
@@ -0,0 +1,85 @@
+package net.enilink.commons.ds.trie;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Object sizes of the running JVM. The layout parameters are read from the
+ * HotSpot diagnostic MBean, other JVMs are assumed to use the common layout
+ * of a 64 bit HotSpot JVM with compressed references.
+ */
+final class MemoryLayout {
+	static final int REFERENCE_SIZE;
+	static final int OBJECT_HEADER;
+	static final int ARRAY_HEADER;
+	static final int ALIGNMENT;
+
+	static {
+		boolean is64Bit = !"32".equals(System.getProperty("sun.arch.data.model"));
+		boolean compressedOops = is64Bit;
+		boolean compressedClassPointers = is64Bit;
+		int alignment = 8;
+		if (is64Bit) {
+			try {
+				MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+				ObjectName name = new ObjectName(
+						"com.sun.management:type=HotSpotDiagnostic");
+				compressedOops = Boolean.parseBoolean(vmOption(server, name,
+						"UseCompressedOops"));
+				alignment = Integer.parseInt(vmOption(server, name,
+						"ObjectAlignmentInBytes"));
+				try {
+					compressedClassPointers = Boolean.parseBoolean(vmOption(
+							server, name, "UseCompressedClassPointers"));
+				} catch (Exception e) {
+					// the option exists since Java 8, before class pointers
+					// were compressed together with the references
+					compressedClassPointers = compressedOops;
+				}
+			} catch (Exception e) {
+				// not a HotSpot JVM or option unknown, keep the assumptions
+			}
+		}
+		REFERENCE_SIZE = is64Bit && !compressedOops ? 8 : 4;
+		OBJECT_HEADER = is64Bit ? (compressedClassPointers ? 12 : 16) : 8;
+		ARRAY_HEADER = OBJECT_HEADER + 4;
+		ALIGNMENT = alignment;
+	}
+
+	private MemoryLayout() {
+	}
+
+	private static String vmOption(MBeanServer server, ObjectName name,
+			String option) throws Exception {
+		CompositeData data = (CompositeData) server.invoke(name,
+				"getVMOption", new Object[] { option },
+				new String[] { String.class.getName() });
+		return (String) data.get("value");
+	}
+
+	/**
+	 * Size of an object with the given number of reference and int fields.
+	 */
+	static long objectSize(int references, int ints) {
+		return align(OBJECT_HEADER + references * REFERENCE_SIZE + ints * 4);
+	}
+
+	/**
+	 * Size of an array of references.
+	 */
+	static long arraySize(int length) {
+		return align(align(ARRAY_HEADER, REFERENCE_SIZE) + (long) length
+				* REFERENCE_SIZE);
+	}
+
+	private static long align(long size) {
+		return align(size, ALIGNMENT);
+	}
+
+	private static long align(long size, int alignment) {
+		return (size + alignment - 1) / alignment * alignment;
+	}
+}
@@ -0,0 +1,119 @@
+package net.enilink.commons.ds.trie;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A space-filling curve over the quadtree of 32 bit coordinates. A cell on
+ * level <code>l</code> of the quadtree corresponds to all keys that share a
+ * common prefix of <code>2 * l</code> bits, hence each cell can be retrieved
+ * from a trie with a single prefix search.
+ * <p>
+ * 
+ * A curve is described by a state machine: for each state and each 2-bit
+ * digit of the curve index the tables hold the quadrant (<code>x << 1 |
+ * y</code>) that is visited and the state of the following level.
+ */
+final class QuadtreeCurve {
+	static final int LEVELS = 32;
+
+	/**
+	 * Visitor for the cells of a decomposition.
+	 */
+	interface CellVisitor {
+		/**
+		 * Called for each cell that intersects the query rectangle, in the
+		 * order of the curve. <code>partial</code> is <code>true</code> if
+		 * the cell is not completely covered by the rectangle, this only
+		 * happens on the maximum level of the decomposition.
+		 */
+		void cell(long prefix, int level, boolean partial);
+	}
+
+	/**
+	 * The Z-order curve used by {@link Interleaved2DPoint}.
+	 */
+	static final QuadtreeCurve MORTON = new QuadtreeCurve(new int[] { 0, 1, 2,
+			3 }, new int[] { 0, 0, 0, 0 });
+
+	private final int[] quadrant;
+	private final int[] next;
+
+	QuadtreeCurve(int[] quadrant, int[] next) {
+		this.quadrant = quadrant;
+		this.next = next;
+	}
+
+	/**
+	 * Visits the cells that cover the rectangle <code>[x0, x1] x [y0,
+	 * y1]</code>. Coordinates are treated as unsigned. Cells are refined up to
+	 * <code>maxLevel</code> (at most 32), the cells on this level may be
+	 * partially outside of the rectangle.
+	 */
+	void decompose(int x0, int y0, int x1, int y1, int maxLevel,
+			CellVisitor visitor) {
+		long minX = x0 & 0xFFFFFFFFL, maxX = x1 & 0xFFFFFFFFL;
+		long minY = y0 & 0xFFFFFFFFL, maxY = y1 & 0xFFFFFFFFL;
+		if (minX > maxX || minY > maxY) {
+			return;
+		}
+		decompose(0, 0, 0, 0, 0, minX, minY, maxX, maxY, Math.min(maxLevel,
+				LEVELS), visitor);
+	}
+
+	private void decompose(long prefix, int level, int state, long cellX,
+			long cellY, long minX, long minY, long maxX, long maxY,
+			int maxLevel, CellVisitor visitor) {
+		long size = 1L << (LEVELS - level);
+		long cellMaxX = cellX + size - 1, cellMaxY = cellY + size - 1;
+		if (cellX > maxX || cellMaxX < minX || cellY > maxY || cellMaxY < minY) {
+			return;
+		}
+		boolean inside = minX <= cellX && cellMaxX <= maxX && minY <= cellY
+				&& cellMaxY <= maxY;
+		if (inside || level == maxLevel) {
+			visitor.cell(prefix, level, !inside);
+			return;
+		}
+		long half = size >> 1;
+		for (int digit = 0; digit < 4; digit++) {
+			int q = quadrant[state << 2 | digit];
+			decompose(prefix << 2 | digit, level + 1,
+					next[state << 2 | digit], cellX + (q >> 1) * half, cellY
+							+ (q & 1) * half, minX, minY, maxX, maxY,
+					maxLevel, visitor);
+		}
+	}
+
+	/**
+	 * Returns the curve index ranges <code>{lo, hi}</code> (inclusive,
+	 * unsigned) that cover the rectangle, sorted and with adjacent ranges
+	 * merged. The number of ranges is the number of seeks a range scan along
+	 * the curve has to perform.
+	 */
+	List<long[]> ranges(int x0, int y0, int x1, int y1, int maxLevel) {
+		final List<long[]> ranges = new ArrayList<long[]>();
+		decompose(x0, y0, x1, y1, maxLevel, new CellVisitor() {
+			public void cell(long prefix, int level, boolean partial) {
+				long lo = prefix(prefix, level);
+				long hi = level == LEVELS ? lo : lo | -1L >>> 2 * level;
+				long[] last = ranges.isEmpty() ? null : ranges.get(ranges
+						.size() - 1);
+				if (last != null && last[1] + 1 == lo) {
+					last[1] = hi;
+				} else {
+					ranges.add(new long[] { lo, hi });
+				}
+			}
+		});
+		return ranges;
+	}
+
+	/**
+	 * Moves the prefix of a cell on <code>level</code> to the most significant
+	 * bits of a 64 bit key.
+	 */
+	static long prefix(long prefix, int level) {
+		return level == 0 ? 0 : prefix << 2 * (LEVELS - level);
+	}
+}
@@ -0,0 +1,201 @@
+package net.enilink.commons.ds.trie;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Distance join of two tries with {@link Interleaved2DPoint} keys.
+ * <p>
+ *
+ * The join returns all pairs of points from the left and the right trie whose
+ * euclidean distance is at most a given radius. Both tries are traversed
+ * synchronously: each internal node stands for the Z-order prefix shared by
+ * all keys in its subtrie and hence for an axis-aligned bounding box. Pairs of
+ * subtries whose boxes are farther apart than the radius are pruned, the
+ * remaining pairs are refined by descending into the node with the larger
+ * box.
+ * <p>
+ *
+ * The matches are produced lazily by the iterator, the traversal keeps an
+ * explicit stack of node pairs. The tries must not be modified while the join
+ * is running. Coordinates are treated as unsigned integers.
+ *
+ * @param <A>
+ *            type of the values in the left trie
+ * @param <B>
+ *            type of the values in the right trie
+ */
+public class SpatialJoin<A, B> implements Iterator<SpatialJoin.Match<A, B>> {
+	/**
+	 * A pair of points whose distance is within the join radius.
+	 */
+	public static class Match<A, B> {
+		final Interleaved2DPoint leftKey, rightKey;
+		final A left;
+		final B right;
+		final double distance;
+
+		Match(Interleaved2DPoint leftKey, A left, Interleaved2DPoint rightKey,
+				B right, double distance) {
+			this.leftKey = leftKey;
+			this.left = left;
+			this.rightKey = rightKey;
+			this.right = right;
+			this.distance = distance;
+		}
+
+		public Interleaved2DPoint getLeftKey() {
+			return leftKey;
+		}
+
+		public A getLeft() {
+			return left;
+		}
+
+		public Interleaved2DPoint getRightKey() {
+			return rightKey;
+		}
+
+		public B getRight() {
+			return right;
+		}
+
+		public double getDistance() {
+			return distance;
+		}
+
+		@Override
+		public String toString() {
+			return new StringBuilder("(").append(left).append(", ").append(
+					right).append(", ").append(distance).append(")")
+					.toString();
+		}
+	}
+
+	private final double radiusSquared;
+
+	// Pending pairs of subtries, left and right nodes are stored alternately
+	private final List<Node<?>> stack = new ArrayList<Node<?>>();
+
+	private Match<A, B> next;
+
+	/**
+	 * Creates a join of the points of <code>left</code> and
+	 * <code>right</code> whose distance is less than or equal to
+	 * <code>radius</code>.
+	 */
+	public SpatialJoin(Trie<A> left, Trie<B> right, double radius) {
+		if (radius < 0) {
+			throw new IllegalArgumentException("Radius must not be negative");
+		}
+		this.radiusSquared = radius * radius;
+		Node<A> leftRoot = left.getRoot();
+		Node<B> rightRoot = right.getRoot();
+		if (leftRoot != null && rightRoot != null) {
+			stack.add(leftRoot);
+			stack.add(rightRoot);
+		}
+	}
+
+	public boolean hasNext() {
+		if (next == null) {
+			next = computeNext();
+		}
+		return next != null;
+	}
+
+	public Match<A, B> next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Match<A, B> result = next;
+		next = null;
+		return result;
+	}
+
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	@SuppressWarnings("unchecked")
+	private Match<A, B> computeNext() {
+		while (!stack.isEmpty()) {
+			Node<?> b = stack.remove(stack.size() - 1);
+			Node<?> a = stack.remove(stack.size() - 1);
+
+			int aBits = a.isLeaf() ? 64 : ((InternalNode<?>) a).pos;
+			int bBits = b.isLeaf() ? 64 : ((InternalNode<?>) b).pos;
+			long aData = ((Interleaved2DPoint) a.key).data;
+			long bData = ((Interleaved2DPoint) b.key).data;
+			double d = minDistanceSquared(aData, aBits, bData, bBits);
+			if (d > radiusSquared) {
+				continue;
+			}
+
+			if (a.isLeaf() && b.isLeaf()) {
+				return new Match<A, B>((Interleaved2DPoint) a.key,
+						(A) a.getValue(), (Interleaved2DPoint) b.key,
+						(B) b.getValue(), Math.sqrt(d));
+			}
+
+			// refine the larger box, i.e. the node with the shorter prefix
+			if (b.isLeaf() || !a.isLeaf() && aBits <= bBits) {
+				InternalNode<?> inode = (InternalNode<?>) a;
+				for (int i = (1 << inode.bits) - 1; i >= 0; i--) {
+					Node<?> child = inode.getChild(i);
+					if (child != null) {
+						stack.add(child);
+						stack.add(b);
+					}
+				}
+			} else {
+				InternalNode<?> inode = (InternalNode<?>) b;
+				for (int i = (1 << inode.bits) - 1; i >= 0; i--) {
+					Node<?> child = inode.getChild(i);
+					if (child != null) {
+						stack.add(a);
+						stack.add(child);
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * Returns the squared minimum distance of the boxes that are spanned by
+	 * the keys sharing the first bits of a and b.
+	 */
+	private static double minDistanceSquared(long a, int aBits, long b,
+			int bBits) {
+		long aMask = aBits == 0 ? 0 : -1L << (64 - aBits);
+		long bMask = bBits == 0 ? 0 : -1L << (64 - bBits);
+		long aMin = a & aMask, aMax = aMin | ~aMask;
+		long bMin = b & bMask, bMax = bMin | ~bMask;
+
+		long dx = gap(Interleaved2DPoint.compact(aMin >>> 1),
+				Interleaved2DPoint.compact(aMax >>> 1), Interleaved2DPoint
+						.compact(bMin >>> 1), Interleaved2DPoint
+						.compact(bMax >>> 1));
+		long dy = gap(Interleaved2DPoint.compact(aMin), Interleaved2DPoint
+				.compact(aMax), Interleaved2DPoint.compact(bMin),
+				Interleaved2DPoint.compact(bMax));
+		return (double) dx * dx + (double) dy * dy;
+	}
+
+	/*
+	 * Distance of the unsigned intervals [aMin, aMax] and [bMin, bMax].
+	 */
+	private static long gap(int aMin, int aMax, int bMin, int bMax) {
+		long aLo = aMin & 0xFFFFFFFFL, aHi = aMax & 0xFFFFFFFFL;
+		long bLo = bMin & 0xFFFFFFFFL, bHi = bMax & 0xFFFFFFFFL;
+		if (aHi < bLo) {
+			return bLo - aHi;
+		} else if (bHi < aLo) {
+			return aLo - bHi;
+		}
+		return 0;
+	}
+}
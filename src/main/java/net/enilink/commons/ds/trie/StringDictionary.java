@@ -0,0 +1,382 @@
+package net.enilink.commons.ds.trie;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * A dictionary that maps strings to dense integer ids and back.
+ * <p>
+ *
+ * The mapping string -> id is kept in a level-compressed {@link Trie}, the
+ * mapping id -> string in a compact arena of UTF-8 encoded bytes that are
+ * addressed by an offset array. Ids are assigned in the order in which the
+ * strings are first added, starting with zero.
+ * <p>
+ *
+ * Lookups and id assignment may be called concurrently. A dictionary can be
+ * frozen with {@link #freeze()} after which it is read-only. A dictionary that
+ * was written with {@link #write(File)} can be opened again with
+ * {@link #map(File)}, in this case the arena is memory mapped and not copied
+ * onto the heap.
+ */
+public class StringDictionary {
+	/**
+	 * Returned by the lookup methods if a string is not contained in the
+	 * dictionary.
+	 */
+	public static final int NOT_FOUND = -1;
+
+	private static final int MAGIC = 0x53444943; // "SDIC"
+
+	private final Trie<Integer> trie = new Trie<Integer>();
+
+	/*
+	 * The string with id i is stored in the arena at offsets[i] (inclusive) to
+	 * offsets[i + 1] (exclusive). Only the first size strings are published to
+	 * readers, the arrays are replaced when they need to grow.
+	 */
+	private volatile byte[] bytes;
+	private volatile int[] offsets;
+	private volatile int size;
+
+	/*
+	 * The arena of a mapped dictionary, bytes is null in this case.
+	 */
+	private ByteBuffer mapped;
+
+	private volatile boolean frozen;
+
+	/** Constructs a new empty dictionary. */
+	public StringDictionary() {
+		this(16);
+	}
+
+	/**
+	 * Constructs a new empty dictionary that is able to hold
+	 * <code>expectedSize</code> strings without growing the offset array.
+	 */
+	public StringDictionary(int expectedSize) {
+		offsets = new int[Math.max(expectedSize, 1) + 1];
+		bytes = new byte[Math.max(expectedSize, 1) * 16];
+	}
+
+	/**
+	 * Returns the id of the given string, or {@link #NOT_FOUND} if the string
+	 * is not contained in this dictionary.
+	 */
+	public int get(String str) {
+		Integer id = trie.get(key(str.getBytes(ByteString.UTF8)));
+		return id != null ? id : NOT_FOUND;
+	}
+
+	/**
+	 * Returns the id of the given string and assigns a new id if the string is
+	 * not yet contained in this dictionary.
+	 *
+	 * @exception IllegalStateException
+	 *                if the string is not contained and the dictionary is
+	 *                frozen
+	 */
+	public int getOrAdd(String str) {
+		byte[] utf8 = str.getBytes(ByteString.UTF8);
+		ByteString key = key(utf8);
+		Integer id = trie.get(key);
+		if (id != null) {
+			return id;
+		}
+		synchronized (this) {
+			return add(utf8, key);
+		}
+	}
+
+	/**
+	 * Returns the ids of the given strings. The result contains
+	 * {@link #NOT_FOUND} for each string that is not contained in this
+	 * dictionary.
+	 */
+	public int[] get(String[] strings) {
+		int[] ids = new int[strings.length];
+		synchronized (trie) {
+			for (int i = 0; i < strings.length; i++) {
+				Integer id = trie.get(key(strings[i].getBytes(ByteString.UTF8)));
+				ids[i] = id != null ? id : NOT_FOUND;
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * Returns the ids of the given strings and assigns new ids to all strings
+	 * that are not yet contained in this dictionary. New ids are assigned in
+	 * the order of the strings within the array.
+	 *
+	 * @exception IllegalStateException
+	 *                if any string is not contained and the dictionary is
+	 *                frozen
+	 */
+	public int[] getOrAdd(String[] strings) {
+		int[] ids = new int[strings.length];
+		byte[][] missing = null;
+		ByteString[] missingKeys = null;
+		synchronized (trie) {
+			for (int i = 0; i < strings.length; i++) {
+				byte[] utf8 = strings[i].getBytes(ByteString.UTF8);
+				ByteString key = key(utf8);
+				Integer id = trie.get(key);
+				if (id != null) {
+					ids[i] = id;
+				} else {
+					if (missing == null) {
+						missing = new byte[strings.length][];
+						missingKeys = new ByteString[strings.length];
+					}
+					missing[i] = utf8;
+					missingKeys[i] = key;
+				}
+			}
+		}
+		if (missing != null) {
+			synchronized (this) {
+				for (int i = 0; i < strings.length; i++) {
+					if (missing[i] != null) {
+						ids[i] = add(missing[i], missingKeys[i]);
+					}
+				}
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * Returns the string with the given id, or <code>null</code> if no such
+	 * id was assigned.
+	 */
+	public String getString(int id) {
+		if (id < 0 || id >= size) {
+			return null;
+		}
+		int[] offsets = this.offsets;
+		int start = offsets[id];
+		int length = offsets[id + 1] - start;
+		if (mapped != null) {
+			byte[] utf8 = new byte[length];
+			ByteBuffer buffer = mapped.duplicate();
+			buffer.position(start);
+			buffer.get(utf8);
+			return new String(utf8, ByteString.UTF8);
+		}
+		return new String(bytes, start, length, ByteString.UTF8);
+	}
+
+	/**
+	 * Returns the strings with the given ids. The result contains
+	 * <code>null</code> for each id that was not assigned.
+	 */
+	public String[] getStrings(int[] ids) {
+		String[] strings = new String[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			strings[i] = getString(ids[i]);
+		}
+		return strings;
+	}
+
+	/**
+	 * Returns <code>true</code> if the string is contained in this
+	 * dictionary.
+	 */
+	public boolean contains(String str) {
+		return get(str) != NOT_FOUND;
+	}
+
+	/**
+	 * Returns the number of strings in this dictionary. The assigned ids are
+	 * <code>0</code> to <code>size() - 1</code>.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Makes this dictionary read-only and releases unused space in the arena.
+	 */
+	public synchronized void freeze() {
+		if (!frozen) {
+			if (mapped == null) {
+				bytes = Arrays.copyOf(bytes, offsets[size]);
+				offsets = Arrays.copyOf(offsets, size + 1);
+			}
+			frozen = true;
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if this dictionary is read-only.
+	 */
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	/**
+	 * Writes the contents of this dictionary to the given file.
+	 */
+	public void write(File file) throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		try {
+			write(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the contents of this dictionary to the given stream. The stream is
+	 * not closed.
+	 */
+	public synchronized void write(OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(
+				out));
+		int size = this.size;
+		data.writeInt(MAGIC);
+		data.writeInt(size);
+		for (int i = 0; i <= size; i++) {
+			data.writeInt(offsets[i]);
+		}
+		if (mapped != null) {
+			byte[] buf = new byte[8192];
+			ByteBuffer buffer = mapped.duplicate();
+			buffer.position(0).limit(offsets[size]);
+			while (buffer.hasRemaining()) {
+				int length = Math.min(buf.length, buffer.remaining());
+				buffer.get(buf, 0, length);
+				data.write(buf, 0, length);
+			}
+		} else {
+			data.write(bytes, 0, offsets[size]);
+		}
+		data.flush();
+	}
+
+	/**
+	 * Opens a dictionary that was written with {@link #write(File)}. The arena
+	 * is memory mapped, only the offsets and the trie are held on the heap.
+	 * The returned dictionary is frozen.
+	 */
+	public static StringDictionary map(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size());
+			if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+				throw new IOException("Not a string dictionary: " + file);
+			}
+			int size = buffer.getInt();
+			int[] offsets = new int[size + 1];
+			buffer.asIntBuffer().get(offsets);
+			buffer.position(buffer.position() + 4 * offsets.length);
+
+			StringDictionary dict = new StringDictionary(0);
+			dict.mapped = buffer.slice();
+			dict.bytes = null;
+			dict.offsets = offsets;
+			byte[] utf8 = new byte[0];
+			for (int i = 0; i < size; i++) {
+				int length = offsets[i + 1] - offsets[i];
+				if (utf8.length < length) {
+					utf8 = new byte[length];
+				}
+				ByteBuffer bytes = dict.mapped.duplicate();
+				bytes.position(offsets[i]);
+				bytes.get(utf8, 0, length);
+				dict.trie.put(key(utf8, length), i);
+			}
+			dict.size = size;
+			dict.frozen = true;
+			return dict;
+		} finally {
+			// the mapping remains valid after the channel is closed
+			raf.close();
+		}
+	}
+
+	/*
+	 * Appends a string to the arena and assigns a new id. Must be called while
+	 * holding the lock of this dictionary.
+	 */
+	private int add(byte[] utf8, ByteString key) {
+		Integer id = trie.get(key);
+		if (id != null) {
+			return id;
+		}
+		if (frozen) {
+			throw new IllegalStateException("Dictionary is frozen");
+		}
+
+		int n = size;
+		int[] offsets = this.offsets;
+		byte[] bytes = this.bytes;
+		int start = offsets[n];
+		int end = start + utf8.length;
+		if (end < 0) {
+			throw new IllegalStateException("Dictionary arena is full");
+		}
+		if (end > bytes.length) {
+			int newLength = Math.max(end, bytes.length + (bytes.length >> 1));
+			bytes = Arrays.copyOf(bytes, newLength < 0 ? end : newLength);
+		}
+		if (n + 2 > offsets.length) {
+			offsets = Arrays.copyOf(offsets, offsets.length
+					+ (offsets.length >> 1) + 1);
+		}
+		System.arraycopy(utf8, 0, bytes, start, utf8.length);
+		offsets[n + 1] = end;
+
+		// publish the new string
+		this.bytes = bytes;
+		this.offsets = offsets;
+		size = n + 1;
+
+		trie.put(key, n);
+		return n;
+	}
+
+	private static ByteString key(byte[] utf8) {
+		return key(utf8, utf8.length);
+	}
+
+	/*
+	 * Creates the trie key for an encoded string. Zero is the endmarker of byte
+	 * strings, hence zero bytes (only produced for the character '\0') are
+	 * replaced by the two byte sequence 0xC0 0x80 which never occurs in valid
+	 * UTF-8.
+	 */
+	private static ByteString key(byte[] utf8, int length) {
+		int zeros = 0;
+		for (int i = 0; i < length; i++) {
+			if (utf8[i] == 0) {
+				zeros++;
+			}
+		}
+		if (zeros == 0) {
+			return new ByteString(utf8, 0, length);
+		}
+		byte[] escaped = new byte[length + zeros];
+		for (int i = 0, j = 0; i < length; i++) {
+			if (utf8[i] == 0) {
+				escaped[j++] = (byte) 0xC0;
+				escaped[j++] = (byte) 0x80;
+			} else {
+				escaped[j++] = utf8[i];
+			}
+		}
+		return new ByteString(escaped);
+	}
+}
@@ -1,5 +1,7 @@
 package net.enilink.commons.ds.trie;
 
+import java.util.Collection;
+
 /*
  *  The code presented in this file has been tested with
  *  care but is not guaranteed for any purpose. The writer
@@ -40,6 +42,8 @@ public class Trie<V> implements ITrie<V> {
 	private boolean keyFound;
 	private V prevValue;
 
+	private final TrieCounters counters = new TrieCounters();
+
 	/***************************************************************************
 	 * *************************************************** PUBLIC INTERFACE *
 	 * ***************************************************
@@ -83,9 +87,14 @@ public class Trie<V> implements ITrie<V> {
 	public synchronized V get(SiString key) {
 		Node<V> n = trie;
 
+		int depth = 0;
 		while (n != null && !n.isLeaf()) {
 			InternalNode<V> inode = (InternalNode<V>) n;
 			n = inode.getChild(key.extractBits(inode.pos, inode.bits));
+			depth++;
+		}
+		if ((++counters.lookups & counters.sampleMask) == 0) {
+			counters.lookupDepths[Math.min(depth, TrieCounters.DEPTHS - 1)]++;
 		}
 		if (n == null) {
 			return null;
@@ -134,6 +143,43 @@ public class Trie<V> implements ITrie<V> {
 		return null;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * net.enilink.commons.ds.trie.ITrie#collectPrefix(net.enilink.commons.
+	 * ds.trie.SiString, int, java.util.Collection)
+	 */
+	public synchronized void collectPrefix(SiString prefix, int bits,
+			Collection<? super V> result) {
+		Node<V> n = trie;
+
+		while (n != null && !n.isLeaf()) {
+			InternalNode<V> inode = (InternalNode<V>) n;
+			if (inode.pos >= bits) {
+				break;
+			}
+			if (inode.pos + inode.bits > bits) {
+				// The prefix ends within the bits used for branching: collect
+				// all children whose index starts with the remaining bits
+				if (!inode.key.subEquals(0, inode.pos, prefix)) {
+					return;
+				}
+				int free = inode.pos + inode.bits - bits;
+				int first = prefix.extractBits(inode.pos, inode.bits) >>> free << free;
+				for (int i = first; i < first + (1 << free); i++) {
+					collect(inode.getChild(i), result);
+				}
+				return;
+			}
+			n = inode.getChild(prefix.extractBits(inode.pos, inode.bits));
+		}
+		// All keys within the subtrie share the prefix of n.key
+		if (n != null && n.key.subEquals(0, bits, prefix)) {
+			collect(n, result);
+		}
+	}
+
 	/*
 	 * Returns <code>true</code> if this trie contains no mappings.
 	 */
@@ -182,6 +228,14 @@ public class Trie<V> implements ITrie<V> {
 		return size;
 	}
 
+	/**
+	 * Returns the root of the trie. The trie must not be modified while the
+	 * returned structure is in use.
+	 */
+	Node<V> getRoot() {
+		return trie;
+	}
+
 	/**
 	 * Return a string displaying the tree structure.
 	 */
@@ -203,36 +257,72 @@ public class Trie<V> implements ITrie<V> {
 	 * Return a string displaying statistics about the trie.
 	 */
 	String printStat() {
-		int bytes = 0; // How many bytes are used, a ref is 4 bytes
+		return getStatistics().toString();
+	}
 
-		StatStruct stat = new StatStruct();
+	/**
+	 * Returns a snapshot of the shape and the counters of this trie. The shape
+	 * is computed by traversing the whole trie.
+	 */
+	public synchronized TrieStatistics getStatistics() {
+		TrieStatistics stat = new TrieStatistics();
 		collectStat(trie, 0, stat);
-		StringBuffer strbuf = new StringBuffer();
-		String newline = System.getProperty("line.separator");
-		if (isLC())
-			strbuf.append("Complete LC-trie" + newline);
-		strbuf.append("Aver depth: " + (float) stat.totDepth / this.size
-				+ newline);
-		strbuf.append("Max depth: " + stat.maxDepth + newline);
-		strbuf.append("Leaves: " + stat.leaves + newline);
-		bytes += 8 * stat.leaves;
-		strbuf.append("Internal nodes: " + stat.internalNodes + newline);
-		bytes += 28 * stat.internalNodes;
-		int max = stat.nodeSizes.length - 1;
-		while (max >= 0 && stat.nodeSizes[max] == 0)
-			max--;
-		int pointers = 0;
-		for (int i = 1; i <= max; i++)
-			if (stat.nodeSizes[i] != 0) {
-				strbuf.append("  " + i + ": ");
-				strbuf.append(stat.nodeSizes[i] + newline);
-				pointers += (1 << i) * stat.nodeSizes[i];
-			}
-		strbuf.append("Pointers: " + pointers + newline);
-		bytes += 4 * pointers;
-		strbuf.append("Null ptrs: " + stat.nullPointers + newline);
-		strbuf.append("Total size: " + bytes / 1000 + " kB" + newline);
-		return strbuf.toString();
+		stat.size = size;
+		stat.lc = isLC();
+		stat.lookups = counters.lookups;
+		stat.lookupDepths = counters.lookupDepths.clone();
+		stat.inflations = counters.inflations;
+		stat.halvings = counters.halvings;
+		return stat;
+	}
+
+	/**
+	 * Returns the number of lookups since the counters were reset.
+	 */
+	public synchronized long getLookups() {
+		return counters.lookups;
+	}
+
+	/**
+	 * Returns the histogram of the sampled lookup depths.
+	 * 
+	 * @see TrieStatistics#getLookupDepths()
+	 */
+	public synchronized long[] getLookupDepths() {
+		return counters.lookupDepths.clone();
+	}
+
+	/**
+	 * Returns the number of times an internal node was doubled in size.
+	 */
+	public synchronized long getInflations() {
+		return counters.inflations;
+	}
+
+	/**
+	 * Returns the number of times an internal node was halved in size.
+	 */
+	public synchronized long getHalvings() {
+		return counters.halvings;
+	}
+
+	/**
+	 * Sets the sampling interval of the lookup depth histogram. The interval
+	 * is rounded up to a power of two, an interval of 1 samples every lookup.
+	 */
+	public synchronized void setLookupSampling(int interval) {
+		if (interval < 1) {
+			throw new IllegalArgumentException("Interval must be positive");
+		}
+		counters.sampleMask = interval == 1 ? 0 : -1 >>> Integer
+				.numberOfLeadingZeros(interval - 1);
+	}
+
+	/**
+	 * Resets the lookup and resize counters.
+	 */
+	public synchronized void resetCounters() {
+		counters.reset();
 	}
 
 	public static void main(String[] args) {
@@ -275,7 +365,7 @@ public class Trie<V> implements ITrie<V> {
 				Node<V> n = insert(key, value, inode.getChild(bitpat),
 						inode.pos + inode.bits);
 				inode.putChild(bitpat, n);
-				return inode.resize();
+				return inode.resize(counters);
 			}
 		}
 
@@ -299,7 +389,7 @@ public class Trie<V> implements ITrie<V> {
 			node.putChild(0, trie);
 			node.putChild(1, leaf);
 		}
-		return node.resize();
+		return node.resize(counters);
 	}
 
 	private Node<V> delete(SiString key, Node<V> t) {
@@ -317,11 +407,24 @@ public class Trie<V> implements ITrie<V> {
 			InternalNode<V> inode = (InternalNode<V>) t;
 			int bits = key.extractBits(inode.pos, inode.bits);
 			inode.putChild(bits, delete(key, inode.getChild(bits)));
-			t = inode.resize();
+			t = inode.resize(counters);
 		}
 		return t;
 	}
 
+	private void collect(Node<V> trie, Collection<? super V> result) {
+		if (trie == null) {
+			return;
+		} else if (trie.isLeaf()) {
+			result.add(trie.getValue());
+		} else {
+			InternalNode<V> inode = (InternalNode<V>) trie;
+			for (int i = 0; i < 1 << inode.bits; i++) {
+				collect(inode.getChild(i), result);
+			}
+		}
+	}
+
 	private void traverse(Node<V> trie, int depth, StringBuffer strbuf) {
 		String newline = System.getProperty("line.separator");
 		for (int i = 0; i < depth; i++)
@@ -355,28 +458,26 @@ public class Trie<V> implements ITrie<V> {
 		}
 	}
 
-	private class StatStruct {
-		int totDepth = 0;
-		int maxDepth = 0;
-		int internalNodes = 0;
-		int leaves = 0;
-		int nullPointers = 0;
-		int[] nodeSizes = new int[32];
-	}
-
-	private void collectStat(Node<V> trie, int depth, StatStruct stat) {
+	private void collectStat(Node<V> trie, int depth, TrieStatistics stat) {
 		if (trie == null) {
 			stat.nullPointers++;
 		} else if (trie.isLeaf()) {
 			if (depth > stat.maxDepth) {
 				stat.maxDepth = depth;
 			}
-			stat.totDepth += depth;
+			stat.totalDepth += depth;
 			stat.leaves++;
+			// key and value references
+			stat.footprint += MemoryLayout.objectSize(2, 0);
 		} else {
 			InternalNode<V> inode = (InternalNode<V>) trie;
 			stat.internalNodes++;
 			stat.nodeSizes[inode.bits]++;
+			stat.pointers += 1 << inode.bits;
+			// key and child references, pos, bits, fullChildren and
+			// emptyChildren
+			stat.footprint += MemoryLayout.objectSize(2, 4)
+					+ MemoryLayout.arraySize(1 << inode.bits);
 			for (int i = 0; i < 1 << inode.bits; i++) {
 				collectStat(inode.getChild(i), depth + 1, stat);
 			}
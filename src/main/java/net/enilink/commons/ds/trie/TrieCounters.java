@@ -0,0 +1,27 @@
+package net.enilink.commons.ds.trie;
+
+/**
+ * Live counters of a trie. The counters are updated while the lock of the
+ * trie is held.
+ */
+final class TrieCounters {
+	static final int DEPTHS = 64;
+
+	long inflations;
+	long halvings;
+
+	// All lookups and the depth of every sampled lookup, the last bucket
+	// holds all depths >= DEPTHS - 1
+	long lookups;
+	long[] lookupDepths = new long[DEPTHS];
+
+	// A lookup is sampled if (lookups & sampleMask) == 0
+	int sampleMask = 15;
+
+	void reset() {
+		inflations = 0;
+		halvings = 0;
+		lookups = 0;
+		lookupDepths = new long[DEPTHS];
+	}
+}
@@ -0,0 +1,545 @@
+package net.enilink.commons.ds.trie;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.zip.CRC32;
+
+/**
+ * A persistent trie that records all updates in an append-only log.
+ * <p>
+ *
+ * The state of the trie is kept in two files within a directory: a snapshot
+ * with all entries and a log with the updates since the snapshot was taken.
+ * Each update appends a single record to the log. Concurrent updates share the
+ * expensive synchronization of the log with the disk (group commit): the
+ * first thread that needs to sync writes the records of all waiting threads
+ * at once.
+ * <p>
+ *
+ * {@link #checkpoint()} writes a new compact snapshot and empties the log,
+ * this also happens automatically when the log exceeds the size set with
+ * {@link #setCheckpointSize(long)}. When a log is opened the latest snapshot
+ * is loaded and the log is replayed. A record that was only partially written
+ * when the process died is discarded.
+ * <p>
+ *
+ * If the log can not be written, it is truncated to its last durable state
+ * and all further updates fail with a {@link LogException}.
+ *
+ * @param <V>
+ *            type of the values
+ */
+public class TrieLog<V> implements ITrie<V>, Closeable {
+	private static final String SNAPSHOT = "snapshot";
+	private static final String LOG = "log";
+
+	private static final int SNAPSHOT_MAGIC = 0x54534e50; // "TSNP"
+
+	private static final byte OP_PUT = 1;
+	private static final byte OP_REMOVE = 2;
+	private static final byte OP_CLEAR = 3;
+
+	private final File directory;
+	private final ICodec<SiString> keyCodec;
+	private final ICodec<V> valueCodec;
+
+	private final Trie<V> trie = new Trie<V>();
+
+	private final FileChannel log;
+
+	/*
+	 * Records that were appended but not yet written to the log, guarded by
+	 * bufferLock. Updates are serialized by the lock of this object, which is
+	 * always acquired before bufferLock.
+	 */
+	private final Object bufferLock = new Object();
+	private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+	private long appendedLsn;
+
+	/*
+	 * State of the group commit, guarded by syncLock. Only the thread that set
+	 * syncing writes to the log.
+	 */
+	private final Object syncLock = new Object();
+	private boolean syncing;
+	private long durableLsn;
+	private long logSize;
+
+	// set if writing the log failed, updates are rejected afterwards
+	private volatile IOException failure;
+
+	private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+	private final DataOutputStream recordOut = new DataOutputStream(record);
+	private final CRC32 crc = new CRC32();
+
+	private volatile boolean autoSync = true;
+	private volatile long checkpointSize = 64L * 1024 * 1024;
+
+	/**
+	 * Opens the trie stored in <code>directory</code> and creates the
+	 * directory if it does not exist.
+	 *
+	 * @param keyCodec
+	 *            codec for the keys, see {@link Codecs}
+	 * @param valueCodec
+	 *            codec for the values
+	 */
+	public TrieLog(File directory, ICodec<SiString> keyCodec,
+			ICodec<V> valueCodec) throws IOException {
+		this.directory = directory;
+		this.keyCodec = keyCodec;
+		this.valueCodec = valueCodec;
+
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Unable to create directory: " + directory);
+		}
+		File snapshot = new File(directory, SNAPSHOT);
+		if (snapshot.exists()) {
+			loadSnapshot(snapshot);
+		}
+		log = new RandomAccessFile(new File(directory, LOG), "rw")
+				.getChannel();
+		logSize = replay();
+		log.truncate(logSize);
+		log.position(logSize);
+	}
+
+	/**
+	 * If <code>true</code> (the default) each update is durable when the
+	 * updating method returns. Otherwise updates are only written by
+	 * {@link #sync()}, {@link #checkpoint()} or {@link #close()}.
+	 */
+	public void setAutoSync(boolean autoSync) {
+		this.autoSync = autoSync;
+	}
+
+	/**
+	 * Sets the size of the log in bytes after which a new snapshot is written.
+	 * A value less than or equal to zero disables automatic checkpoints.
+	 */
+	public void setCheckpointSize(long checkpointSize) {
+		this.checkpointSize = checkpointSize;
+	}
+
+	public V put(SiString key, V value) {
+		if (key == null || value == null)
+			throw new NullPointerException();
+
+		V prevValue;
+		long lsn;
+		synchronized (this) {
+			lsn = append(OP_PUT, key, value);
+			prevValue = trie.put(key, value);
+		}
+		afterAppend(lsn);
+		return prevValue;
+	}
+
+	public Object remove(SiString key) {
+		Object prevValue;
+		long lsn = 0;
+		synchronized (this) {
+			// the record is appended first, as by put and clear, hence the
+			// trie is unchanged if it can not be logged
+			prevValue = trie.get(key);
+			if (prevValue != null) {
+				lsn = append(OP_REMOVE, key, null);
+				trie.remove(key);
+			}
+		}
+		if (prevValue != null) {
+			afterAppend(lsn);
+		}
+		return prevValue;
+	}
+
+	public void clear() {
+		long lsn;
+		synchronized (this) {
+			lsn = append(OP_CLEAR, null, null);
+			trie.clear();
+		}
+		afterAppend(lsn);
+	}
+
+	public V get(SiString key) {
+		return trie.get(key);
+	}
+
+	public V findPrefix(SiString key) {
+		return trie.findPrefix(key);
+	}
+
+	public void collectPrefix(SiString prefix, int bits,
+			Collection<? super V> result) {
+		trie.collectPrefix(prefix, bits, result);
+	}
+
+	public boolean isEmpty() {
+		return trie.isEmpty();
+	}
+
+	public int size() {
+		return trie.size();
+	}
+
+	/**
+	 * Writes all pending updates to the log and forces them to the disk.
+	 */
+	public void sync() {
+		long lsn;
+		synchronized (bufferLock) {
+			lsn = appendedLsn;
+		}
+		awaitDurable(lsn);
+	}
+
+	/**
+	 * Writes a snapshot of the trie and empties the log. Updates are blocked
+	 * while the snapshot is written.
+	 */
+	public synchronized void checkpoint() {
+		// become the only writer of the log
+		synchronized (syncLock) {
+			while (syncing) {
+				waitForSync();
+			}
+			checkFailed();
+			syncing = true;
+		}
+		try {
+			writeLog();
+
+			File tmp = new File(directory, SNAPSHOT + ".tmp");
+			FileOutputStream fileOut = new FileOutputStream(tmp);
+			try {
+				DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(fileOut));
+				out.writeInt(SNAPSHOT_MAGIC);
+				out.writeInt(trie.size());
+				writeEntries(trie.getRoot(), out);
+				out.flush();
+				fileOut.getChannel().force(true);
+			} finally {
+				fileOut.close();
+			}
+			Files.move(tmp.toPath(), new File(directory, SNAPSHOT).toPath(),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			// makes the rename itself durable
+			syncDirectory();
+
+			// the log is only truncated after the snapshot is in place,
+			// replaying the complete log on the new snapshot is harmless
+			try {
+				log.truncate(0);
+				log.position(0);
+				log.force(true);
+			} catch (IOException e) {
+				failed(e);
+				throw e;
+			}
+			synchronized (syncLock) {
+				logSize = 0;
+			}
+		} catch (IOException e) {
+			throw new LogException(e);
+		} finally {
+			synchronized (syncLock) {
+				syncing = false;
+				syncLock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Writes all pending updates and closes the log.
+	 */
+	public void close() throws IOException {
+		try {
+			sync();
+		} finally {
+			log.close();
+		}
+	}
+
+	/*
+	 * Appends a record to the buffer and returns its sequence number. Must be
+	 * called while holding the lock of this object.
+	 */
+	private long append(byte op, SiString key, V value) {
+		checkFailed();
+		try {
+			record.reset();
+			recordOut.writeInt(0); // length
+			recordOut.writeByte(op);
+			if (key != null) {
+				keyCodec.write(key, recordOut);
+			}
+			if (value != null) {
+				valueCodec.write(value, recordOut);
+			}
+			recordOut.flush();
+		} catch (IOException e) {
+			throw new LogException(e);
+		}
+		byte[] bytes = record.toByteArray();
+		int length = bytes.length - 4;
+		ByteBuffer.wrap(bytes).putInt(0, length);
+		crc.reset();
+		crc.update(bytes, 4, length);
+		int checksum = (int) crc.getValue();
+
+		synchronized (bufferLock) {
+			buffer.write(bytes, 0, bytes.length);
+			buffer.write(checksum >>> 24);
+			buffer.write(checksum >>> 16);
+			buffer.write(checksum >>> 8);
+			buffer.write(checksum);
+			return ++appendedLsn;
+		}
+	}
+
+	private void afterAppend(long lsn) {
+		if (autoSync) {
+			awaitDurable(lsn);
+		}
+		long checkpointSize = this.checkpointSize;
+		if (checkpointSize > 0 && logSize() > checkpointSize) {
+			checkpoint();
+		}
+	}
+
+	private long logSize() {
+		synchronized (syncLock) {
+			return logSize;
+		}
+	}
+
+	/*
+	 * Waits until the record with the given sequence number is durable. If no
+	 * other thread is writing the log the calling thread writes all pending
+	 * records.
+	 */
+	private void awaitDurable(long lsn) {
+		synchronized (syncLock) {
+			while (durableLsn < lsn && syncing) {
+				waitForSync();
+			}
+			if (durableLsn >= lsn) {
+				return;
+			}
+			checkFailed();
+			syncing = true;
+		}
+		try {
+			writeLog();
+		} catch (IOException e) {
+			throw new LogException(e);
+		} finally {
+			synchronized (syncLock) {
+				syncing = false;
+				syncLock.notifyAll();
+			}
+		}
+	}
+
+	/*
+	 * Writes and forces the pending records. Must only be called by the thread
+	 * that set syncing. The records are only removed from the buffer when
+	 * they are durable.
+	 */
+	private void writeLog() throws IOException {
+		byte[] bytes;
+		long lsn;
+		synchronized (bufferLock) {
+			bytes = buffer.toByteArray();
+			lsn = appendedLsn;
+		}
+		if (bytes.length > 0) {
+			try {
+				ByteBuffer buf = ByteBuffer.wrap(bytes);
+				long position = logSize;
+				while (buf.hasRemaining()) {
+					position += log.write(buf, position);
+				}
+				log.force(false);
+			} catch (IOException e) {
+				failed(e);
+				throw e;
+			}
+			synchronized (bufferLock) {
+				// keep the records that were appended in the meantime
+				byte[] pending = buffer.toByteArray();
+				buffer = new ByteArrayOutputStream();
+				buffer.write(pending, bytes.length, pending.length
+						- bytes.length);
+			}
+		}
+		synchronized (syncLock) {
+			logSize += bytes.length;
+			durableLsn = lsn;
+		}
+	}
+
+	/*
+	 * Rejects further updates and removes a partially written tail from the
+	 * log. Must only be called by the thread that set syncing.
+	 */
+	private void failed(IOException e) {
+		failure = e;
+		try {
+			log.truncate(logSize);
+			log.force(false);
+		} catch (IOException ignored) {
+			// replay discards incomplete records
+		}
+	}
+
+	private void checkFailed() {
+		IOException failure = this.failure;
+		if (failure != null) {
+			throw new LogException(new IOException("Log of " + directory
+					+ " could not be written", failure));
+		}
+	}
+
+	/*
+	 * Forces the entries of the directory to the disk, which is not
+	 * supported on all platforms.
+	 */
+	private void syncDirectory() {
+		try {
+			FileChannel dir = FileChannel.open(directory.toPath(),
+					StandardOpenOption.READ);
+			try {
+				dir.force(true);
+			} finally {
+				dir.close();
+			}
+		} catch (IOException e) {
+			// e.g. directories can not be opened on Windows
+		}
+	}
+
+	private void waitForSync() {
+		try {
+			syncLock.wait();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new LogException(new IOException("Interrupted"));
+		}
+	}
+
+	private void writeEntries(Node<V> node, DataOutputStream out)
+			throws IOException {
+		if (node == null) {
+			return;
+		} else if (node.isLeaf()) {
+			keyCodec.write(node.key, out);
+			valueCodec.write(node.getValue(), out);
+		} else {
+			InternalNode<V> inode = (InternalNode<V>) node;
+			for (int i = 0; i < 1 << inode.bits; i++) {
+				writeEntries(inode.getChild(i), out);
+			}
+		}
+	}
+
+	private void loadSnapshot(File snapshot) throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(snapshot));
+		try {
+			DataInputStream data = new DataInputStream(in);
+			if (data.readInt() != SNAPSHOT_MAGIC) {
+				throw new IOException("Not a trie snapshot: " + snapshot);
+			}
+			int size = data.readInt();
+			for (int i = 0; i < size; i++) {
+				SiString key = keyCodec.read(data);
+				trie.put(key, valueCodec.read(data));
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/*
+	 * Applies all complete records of the log and returns the length of the
+	 * valid part of the log.
+	 */
+	private long replay() throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				Channels.newInputStream(log)));
+		long valid = 0;
+		while (true) {
+			byte[] bytes;
+			int checksum;
+			try {
+				int length = in.readInt();
+				if (length <= 0 || valid + 8 + length > log.size()) {
+					break;
+				}
+				bytes = new byte[length];
+				in.readFully(bytes);
+				checksum = in.readInt();
+			} catch (EOFException e) {
+				break;
+			}
+			crc.reset();
+			crc.update(bytes, 0, bytes.length);
+			if ((int) crc.getValue() != checksum) {
+				break;
+			}
+
+			DataInputStream recordIn = new DataInputStream(
+					new ByteArrayInputStream(bytes));
+			switch (recordIn.readByte()) {
+			case OP_PUT:
+				SiString key = keyCodec.read(recordIn);
+				trie.put(key, valueCodec.read(recordIn));
+				break;
+			case OP_REMOVE:
+				trie.remove(keyCodec.read(recordIn));
+				break;
+			case OP_CLEAR:
+				trie.clear();
+				break;
+			default:
+				throw new IOException("Unknown log record in " + directory);
+			}
+			valid += 8 + bytes.length;
+		}
+		return valid;
+	}
+
+	/**
+	 * Thrown by the updating methods of a {@link TrieLog} if the log could not
+	 * be written.
+	 */
+	public static class LogException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		LogException(IOException cause) {
+			super(cause);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package net.enilink.commons.ds.trie;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Exposes the statistics of a {@link Trie} as a JMX MBean.
+ * <p>
+ * 
+ * The counters (size, lookups, resizes) are read directly from the trie. The
+ * shape attributes require a traversal of the trie, they are computed at most
+ * once per refresh interval to keep monitoring cheap for large tries.
+ */
+public class TrieMonitor implements TrieMonitorMBean {
+	private final Trie<?> trie;
+	private volatile long refreshInterval = 10000;
+
+	private TrieStatistics statistics;
+	private long refreshed;
+
+	private ObjectName name;
+
+	public TrieMonitor(Trie<?> trie) {
+		this.trie = trie;
+	}
+
+	/**
+	 * Registers this monitor with the platform MBean server under the name
+	 * <code>net.enilink.commons.ds:type=Trie,name=&lt;name&gt;</code>.
+	 */
+	public synchronized ObjectName register(String name) throws JMException {
+		ObjectName objectName = new ObjectName(
+				"net.enilink.commons.ds:type=Trie,name="
+						+ ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+				objectName);
+		this.name = objectName;
+		return objectName;
+	}
+
+	/**
+	 * Removes this monitor from the platform MBean server.
+	 */
+	public synchronized void unregister() throws JMException {
+		if (name != null) {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+			name = null;
+		}
+	}
+
+	private synchronized TrieStatistics statistics() {
+		long now = System.currentTimeMillis();
+		if (statistics == null || now - refreshed >= refreshInterval) {
+			statistics = trie.getStatistics();
+			refreshed = now;
+		}
+		return statistics;
+	}
+
+	public int getSize() {
+		return trie.size();
+	}
+
+	public long getLookups() {
+		return trie.getLookups();
+	}
+
+	public long[] getLookupDepths() {
+		return trie.getLookupDepths();
+	}
+
+	public double getAverageLookupDepth() {
+		return TrieStatistics.averageDepth(trie.getLookupDepths());
+	}
+
+	public long getInflations() {
+		return trie.getInflations();
+	}
+
+	public long getHalvings() {
+		return trie.getHalvings();
+	}
+
+	public int getLeaves() {
+		return statistics().getLeaves();
+	}
+
+	public int getInternalNodes() {
+		return statistics().getInternalNodes();
+	}
+
+	public int getMaxDepth() {
+		return statistics().getMaxDepth();
+	}
+
+	public double getAverageDepth() {
+		return statistics().getAverageDepth();
+	}
+
+	public double getNullPointerRatio() {
+		return statistics().getNullPointerRatio();
+	}
+
+	public long getFootprint() {
+		return statistics().getFootprint();
+	}
+
+	public long getRefreshInterval() {
+		return refreshInterval;
+	}
+
+	public void setRefreshInterval(long refreshInterval) {
+		this.refreshInterval = refreshInterval;
+	}
+
+	public synchronized void refresh() {
+		statistics = null;
+		statistics();
+	}
+
+	public void resetCounters() {
+		trie.resetCounters();
+	}
+}
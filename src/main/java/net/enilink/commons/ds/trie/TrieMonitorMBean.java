@@ -0,0 +1,48 @@
+package net.enilink.commons.ds.trie;
+
+/**
+ * Management interface of a {@link TrieMonitor}.
+ */
+public interface TrieMonitorMBean {
+	int getSize();
+
+	long getLookups();
+
+	long[] getLookupDepths();
+
+	double getAverageLookupDepth();
+
+	long getInflations();
+
+	long getHalvings();
+
+	int getLeaves();
+
+	int getInternalNodes();
+
+	int getMaxDepth();
+
+	double getAverageDepth();
+
+	double getNullPointerRatio();
+
+	long getFootprint();
+
+	/**
+	 * Returns the minimum time in milliseconds between two traversals of the
+	 * trie that compute the shape attributes.
+	 */
+	long getRefreshInterval();
+
+	void setRefreshInterval(long refreshInterval);
+
+	/**
+	 * Recomputes the shape attributes.
+	 */
+	void refresh();
+
+	/**
+	 * Resets the lookup and resize counters of the trie.
+	 */
+	void resetCounters();
+}
@@ -0,0 +1,173 @@
+package net.enilink.commons.ds.trie;
+
+/**
+ * A snapshot of the shape and the counters of a {@link Trie}.
+ *
+ * @see Trie#getStatistics()
+ */
+public final class TrieStatistics {
+	int size;
+	int leaves;
+	int internalNodes;
+	long pointers;
+	long nullPointers;
+	int maxDepth;
+	long totalDepth;
+	int[] nodeSizes = new int[32];
+	long footprint;
+	boolean lc;
+
+	long lookups;
+	long[] lookupDepths;
+	long inflations;
+	long halvings;
+
+	TrieStatistics() {
+	}
+
+	/**
+	 * Returns the number of entries.
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	public int getLeaves() {
+		return leaves;
+	}
+
+	public int getInternalNodes() {
+		return internalNodes;
+	}
+
+	/**
+	 * Returns the number of child pointers of all internal nodes.
+	 */
+	public long getPointers() {
+		return pointers;
+	}
+
+	/**
+	 * Returns the number of child pointers that are <code>null</code>.
+	 */
+	public long getNullPointers() {
+		return nullPointers;
+	}
+
+	/**
+	 * Returns the fraction of child pointers that are <code>null</code>.
+	 */
+	public double getNullPointerRatio() {
+		return pointers == 0 ? 0 : (double) nullPointers / pointers;
+	}
+
+	/**
+	 * Returns the maximum depth of a leaf.
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Returns the average depth of a leaf.
+	 */
+	public double getAverageDepth() {
+		return leaves == 0 ? 0 : (double) totalDepth / leaves;
+	}
+
+	/**
+	 * Returns the number of internal nodes by branching factor: the element
+	 * <code>i</code> is the number of nodes with <code>2^i</code> children.
+	 */
+	public int[] getNodeSizes() {
+		return nodeSizes.clone();
+	}
+
+	/**
+	 * Returns the number of bytes occupied by the leaves, the internal nodes
+	 * and their child arrays according to the object layout of the running
+	 * JVM. Keys and values are not included.
+	 */
+	public long getFootprint() {
+		return footprint;
+	}
+
+	/**
+	 * Returns <code>true</code> if the trie is a complete LC-trie.
+	 */
+	public boolean isLC() {
+		return lc;
+	}
+
+	/**
+	 * Returns the number of lookups since the counters were reset.
+	 */
+	public long getLookups() {
+		return lookups;
+	}
+
+	/**
+	 * Returns the histogram of the sampled lookup depths: element
+	 * <code>i</code> is the number of sampled lookups that passed
+	 * <code>i</code> internal nodes, the last element counts all deeper
+	 * lookups.
+	 */
+	public long[] getLookupDepths() {
+		return lookupDepths.clone();
+	}
+
+	/**
+	 * Returns the average depth of the sampled lookups.
+	 */
+	public double getAverageLookupDepth() {
+		return averageDepth(lookupDepths);
+	}
+
+	/**
+	 * Returns the number of times an internal node was doubled in size.
+	 */
+	public long getInflations() {
+		return inflations;
+	}
+
+	/**
+	 * Returns the number of times an internal node was halved in size.
+	 */
+	public long getHalvings() {
+		return halvings;
+	}
+
+	static double averageDepth(long[] depths) {
+		long samples = 0, total = 0;
+		for (int i = 0; i < depths.length; i++) {
+			samples += depths[i];
+			total += i * depths[i];
+		}
+		return samples == 0 ? 0 : (double) total / samples;
+	}
+
+	public String toString() {
+		StringBuffer strbuf = new StringBuffer();
+		String newline = System.getProperty("line.separator");
+		if (lc)
+			strbuf.append("Complete LC-trie" + newline);
+		strbuf.append("Aver depth: " + (float) getAverageDepth() + newline);
+		strbuf.append("Max depth: " + maxDepth + newline);
+		strbuf.append("Leaves: " + leaves + newline);
+		strbuf.append("Internal nodes: " + internalNodes + newline);
+		for (int i = 1; i < nodeSizes.length; i++)
+			if (nodeSizes[i] != 0) {
+				strbuf.append("  " + i + ": ");
+				strbuf.append(nodeSizes[i] + newline);
+			}
+		strbuf.append("Pointers: " + pointers + newline);
+		strbuf.append("Null ptrs: " + nullPointers + newline);
+		strbuf.append("Total size: " + footprint / 1000 + " kB" + newline);
+		strbuf.append("Lookups: " + lookups + newline);
+		strbuf.append("Aver lookup depth: " + (float) getAverageLookupDepth()
+				+ newline);
+		strbuf.append("Inflations: " + inflations + newline);
+		strbuf.append("Halvings: " + halvings + newline);
+		return strbuf.toString();
+	}
+}